@@ -0,0 +1,17 @@
+package com.example.bankcards.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Метод репозитория без ключа шарда, который при шардировании выполняется на всех шардах
+ * параллельно; результаты объединяются по id (списки и Slice — в порядке id, числа — суммой).
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AllShards {
+}
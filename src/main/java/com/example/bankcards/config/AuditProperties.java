@@ -0,0 +1,65 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+// Настройки асинхронного аудита (секция audit в application.yml)
+@Component
+@ConfigurationProperties(prefix = "audit")
+public class AuditProperties {
+
+    public enum OverflowPolicy {
+        // отбросить новое событие
+        DROP_NEWEST,
+        // вытеснить самое старое событие из буфера
+        DROP_OLDEST,
+        // подождать освобождения места не дольше offerTimeoutMs, затем отбросить
+        WAIT
+    }
+
+    private int bufferSize = 8192;
+    private int batchSize = 500;
+    private long flushIntervalMs = 200;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+    private long offerTimeoutMs = 5;
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public long getOfferTimeoutMs() {
+        return offerTimeoutMs;
+    }
+
+    public void setOfferTimeoutMs(long offerTimeoutMs) {
+        this.offerTimeoutMs = offerTimeoutMs;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.security.AdaptiveConcurrencyLimiter.Priority;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Адаптивный лимит одновременных запросов и приоритеты маршрутов (секция concurrency-limit в application.yml)
+@Component
+@ConfigurationProperties(prefix = "concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    private int initialLimit = 50;
+    private int minLimit = 10;
+    private int maxLimit = 200;
+
+    // Окно, по итогам которого пересчитывается лимит, и минимум замеров в нём
+    private long windowMs = 500;
+    private int minWindowSamples = 10;
+
+    // Сколько окон охватывает долгая средняя задержка
+    private int longWindow = 600;
+
+    // Во сколько раз задержка может превысить долгую среднюю, прежде чем лимит начнёт снижаться
+    private double rttTolerance = 1.5;
+
+    // Доля нового значения при сглаживании лимита
+    private double smoothing = 0.2;
+
+    // Доля лимита, доступная запросам каждого приоритета
+    private Map<Priority, Double> shares = new EnumMap<>(Map.of(
+            Priority.CRITICAL, 1.0, Priority.NORMAL, 0.9, Priority.LOW, 0.75));
+
+    private Priority defaultPriority = Priority.NORMAL;
+
+    // Маршруты вне лимита: пробы, долгоживущие потоки событий
+    private List<String> exclude = new ArrayList<>();
+
+    private List<Route> routes = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    public void setWindowMs(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    public int getMinWindowSamples() {
+        return minWindowSamples;
+    }
+
+    public void setMinWindowSamples(int minWindowSamples) {
+        this.minWindowSamples = minWindowSamples;
+    }
+
+    public int getLongWindow() {
+        return longWindow;
+    }
+
+    public void setLongWindow(int longWindow) {
+        this.longWindow = longWindow;
+    }
+
+    public double getRttTolerance() {
+        return rttTolerance;
+    }
+
+    public void setRttTolerance(double rttTolerance) {
+        this.rttTolerance = rttTolerance;
+    }
+
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    public Map<Priority, Double> getShares() {
+        return shares;
+    }
+
+    public void setShares(Map<Priority, Double> shares) {
+        this.shares = shares;
+    }
+
+    public Priority getDefaultPriority() {
+        return defaultPriority;
+    }
+
+    public void setDefaultPriority(Priority defaultPriority) {
+        this.defaultPriority = defaultPriority;
+    }
+
+    public List<String> getExclude() {
+        return exclude;
+    }
+
+    public void setExclude(List<String> exclude) {
+        this.exclude = exclude;
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(List<Route> routes) {
+        this.routes = routes;
+    }
+
+    public static class Route {
+        // Ant-шаблон пути, например /cards/**
+        private String path;
+        // HTTP-метод; пусто — любой
+        private String method;
+        private Priority priority;
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public void setMethod(String method) {
+            this.method = method;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        public void setPriority(Priority priority) {
+            this.priority = priority;
+        }
+    }
+}
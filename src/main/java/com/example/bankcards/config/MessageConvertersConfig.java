@@ -0,0 +1,40 @@
+package com.example.bankcards.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Бинарный CBOR для карт, пользователей и остальных тел запросов/ответов по Accept: application/cbor
+ * (и Content-Type: application/cbor для запросов). JSON остаётся первым в списке конвертеров,
+ * поэтому без Accept или с Accept: *&#47;* ответ по-прежнему в JSON.
+ */
+@Configuration
+public class MessageConvertersConfig implements WebMvcConfigurer {
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    // Builder из JacksonAutoConfiguration (prototype): CBOR получает те же модули и настройки, что и JSON
+    public MessageConvertersConfig(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        MappingJackson2CborHttpMessageConverter cbor =
+                new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.factory(new CBORFactory()).build());
+        // Spring MVC сам добавляет CBOR-конвертер с настройками по умолчанию — заменяем его
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2CborHttpMessageConverter) {
+                converters.set(i, cbor);
+                return;
+            }
+        }
+        converters.add(cbor);
+    }
+}
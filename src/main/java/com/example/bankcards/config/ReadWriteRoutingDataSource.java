@@ -0,0 +1,84 @@
+package com.example.bankcards.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Направляет транзакции {@code @Transactional(readOnly = true)} на реплику, всё остальное — на основную БД.
+ * Пользователь, только что выполнивший запись, в течение readYourWritesMs читает с основной БД,
+ * чтобы не увидеть данные, ещё не доехавшие до реплики.
+ * Должен использоваться через LazyConnectionDataSourceProxy: ключ определяется при первом запросе,
+ * когда признак readOnly транзакции уже выставлен. JPA-транзакции закрепляют ключ чтения при начале
+ * ({@link ReplicaAwareJpaDialect}), чтобы сессия знала, что читает реплику, и не клала её строки в кэш.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private final long readYourWritesMs;
+    private final Map<String, Long> lastWriteByUser = new ConcurrentHashMap<>();
+    // Ключ, выбранный при начале текущей read-only транзакции потока
+    private final ThreadLocal<String> pinnedReadKey = new ThreadLocal<>();
+
+    public ReadWriteRoutingDataSource(long readYourWritesMs) {
+        this.readYourWritesMs = readYourWritesMs;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String username = currentUsername();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (username != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                lastWriteByUser.put(username, System.currentTimeMillis());
+            }
+            return PRIMARY;
+        }
+        String pinned = pinnedReadKey.get();
+        return pinned != null ? pinned : readKey();
+    }
+
+    // Куда пойдёт read-only транзакция текущего пользователя, начатая сейчас
+    public String readKey() {
+        String username = currentUsername();
+        if (username != null) {
+            Long lastWrite = lastWriteByUser.get(username);
+            if (lastWrite != null && System.currentTimeMillis() - lastWrite < readYourWritesMs) {
+                return PRIMARY;
+            }
+        }
+        return REPLICA;
+    }
+
+    // Закрепляет ключ чтения за потоком до конца транзакции; возвращает ключ внешней транзакции
+    String pinReadKey(String key) {
+        String previous = pinnedReadKey.get();
+        pinnedReadKey.set(key);
+        return previous;
+    }
+
+    void restoreReadKey(String previous) {
+        if (previous == null) {
+            pinnedReadKey.remove();
+        } else {
+            pinnedReadKey.set(previous);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${datasource-routing.read-your-writes-ms:5000}")
+    public void purgeExpiredWrites() {
+        long threshold = System.currentTimeMillis() - readYourWritesMs;
+        lastWriteByUser.values().removeIf(lastWrite -> lastWrite < threshold);
+    }
+
+    private static String currentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null ? auth.getName() : null;
+    }
+}
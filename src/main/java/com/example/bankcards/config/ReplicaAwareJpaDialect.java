@@ -0,0 +1,70 @@
+package com.example.bankcards.config;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLException;
+
+/**
+ * Read-only транзакция, ушедшая на реплику, читает кэш второго уровня, но не пополняет его:
+ * строки отстающей реплики попали бы в общий кэш сущностей и запросов и отдавались бы
+ * вместо данных основной БД до вытеснения. Ключ чтения закрепляется при начале транзакции,
+ * поэтому решение о кэше и маршрутизация соединения совпадают.
+ */
+public class ReplicaAwareJpaDialect extends HibernateJpaDialect {
+
+    private static final String STORE_MODE = AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE;
+
+    private final ReadWriteRoutingDataSource routing;
+
+    public ReplicaAwareJpaDialect(ReadWriteRoutingDataSource routing) {
+        this.routing = routing;
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws SQLException {
+        if (!definition.isReadOnly()) {
+            return super.beginTransaction(entityManager, definition);
+        }
+        String key = routing.readKey();
+        String previousKey = routing.pinReadKey(key);
+        Object data;
+        try {
+            data = super.beginTransaction(entityManager, definition);
+        } catch (SQLException | RuntimeException e) {
+            routing.restoreReadKey(previousKey);
+            throw e;
+        }
+        // с open-in-view сессия переживает транзакцию: режим кэша возвращается при очистке
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode previousCacheMode = session.getCacheMode();
+        Object previousStoreMode = session.getProperties().getOrDefault(STORE_MODE, CacheStoreMode.USE);
+        if (ReadWriteRoutingDataSource.REPLICA.equals(key)) {
+            // find() берёт режим из свойства сессии, запросы — из CacheMode
+            session.setProperty(STORE_MODE, CacheStoreMode.BYPASS);
+            session.setCacheMode(CacheMode.GET);
+        }
+        return new RoutedTransactionData(data, session, previousCacheMode, previousStoreMode, previousKey);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof RoutedTransactionData routed) {
+            routed.session().setProperty(STORE_MODE, routed.previousStoreMode());
+            routed.session().setCacheMode(routed.previousCacheMode());
+            routing.restoreReadKey(routed.previousKey());
+            transactionData = routed.delegate();
+        }
+        super.cleanupTransaction(transactionData);
+    }
+
+    private record RoutedTransactionData(Object delegate, Session session, CacheMode previousCacheMode,
+                                         Object previousStoreMode, String previousKey) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.bankcards.config;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Шард текущей работы с БД. Внутри транзакции шард закрепляется за ней целиком:
+ * первое обращение по ключу (id, username) выбирает шард, обращение к другому шарду
+ * в той же транзакции — ошибка, распределённых транзакций нет.
+ * Вне транзакции шард выбирается на время одного вызова репозитория.
+ * Явное закрепление (pin) отличается от выбранного по ключу: в закреплённой
+ * транзакции запросы {@link AllShards} выполняются только на её шарде.
+ */
+public final class ShardContext {
+
+    private static final Object KEY = ShardContext.class;
+    private static final ThreadLocal<Binding> CALL = new ThreadLocal<>();
+    // Шарды приостановленных транзакций: вложенная REQUIRES_NEW без своего ключа
+    // (например, вставка строки счётчика) работает с шардом внешней
+    private static final ThreadLocal<Deque<Binding>> SUSPENDED = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private ShardContext() {
+    }
+
+    record Binding(int shard, boolean pinned) {
+    }
+
+    // Текущее закрепление или null, если шард ещё не выбран
+    static Binding current() {
+        Binding binding = (Binding) TransactionSynchronizationManager.getResource(KEY);
+        return binding != null ? binding : CALL.get();
+    }
+
+    public static boolean isPinned() {
+        Binding binding = current();
+        return binding != null && binding.pinned();
+    }
+
+    /**
+     * Закрепляет шард за текущей транзакцией или, вне транзакции, за вызовом.
+     *
+     * @return действие, снимающее закрепление вызова; для транзакции ничего не делает —
+     * закрепление снимается при её завершении
+     */
+    public static Runnable bind(int shard, boolean pinned) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Binding binding = (Binding) TransactionSynchronizationManager.getResource(KEY);
+            if (binding == null) {
+                bindTransaction(new Binding(shard, pinned));
+            } else {
+                check(binding, shard);
+            }
+            return () -> {
+            };
+        }
+        Binding previous = CALL.get();
+        if (previous != null) {
+            check(previous, shard);
+        }
+        CALL.set(new Binding(shard, pinned || previous != null && previous.pinned()));
+        return previous == null ? CALL::remove : () -> CALL.set(previous);
+    }
+
+    /**
+     * Шард для физического соединения. Транзакция, получившая соединение без выбранного
+     * шарда, закрепляется за шардом внешней транзакции или шардом 0, чтобы последующее
+     * обращение к другому шарду не ушло молча в уже открытое соединение.
+     */
+    static int resolve() {
+        Binding binding = current();
+        if (binding != null) {
+            return binding.shard();
+        }
+        Binding outer = SUSPENDED.get().peek();
+        int shard = outer != null ? outer.shard() : 0;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            bindTransaction(new Binding(shard, false));
+        }
+        return shard;
+    }
+
+    private static void check(Binding binding, int shard) {
+        if (binding.shard() != shard) {
+            throw new IllegalStateException("Transaction is bound to shard " + binding.shard()
+                    + " and cannot access shard " + shard);
+        }
+    }
+
+    private static void bindTransaction(Binding binding) {
+        TransactionSynchronizationManager.bindResource(KEY, binding);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            // REQUIRES_NEW приостанавливает транзакцию: вложенная выбирает свой шард
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResourceIfPossible(KEY);
+                SUSPENDED.get().push(binding);
+            }
+
+            @Override
+            public void resume() {
+                SUSPENDED.get().pop();
+                TransactionSynchronizationManager.bindResource(KEY, binding);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(KEY);
+            }
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.bankcards.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Направляет соединение в пул шарда, выбранного {@link ShardContext}.
+ * Должен использоваться через LazyConnectionDataSourceProxy: транзакция получает
+ * физическое соединение при первом запросе, когда шард уже выбран по ключу.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.resolve();
+    }
+
+    // Пулы шардов не бины: закрываются вместе с маршрутизатором
+    public void close() throws Exception {
+        for (DataSource shard : getResolvedDataSources().values()) {
+            if (shard instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.dto.CardVersion;
+import com.example.bankcards.dto.UserSummary;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.repository.UserBulkRepository;
+import com.example.bankcards.repository.UserBulkRepository.NewUser;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.ShardRouter;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Выбор шарда для вызовов репозиториев пользователей, карт и refresh-сессий.
+ * Ключ берётся из первого аргумента: id (Long), username (String в методах
+ * ...Username...), сущность или пачка, целиком лежащая на одном шарде.
+ * Методы {@link AllShards} выполняются на всех шардах и объединяются по id,
+ * остальные методы без ключа идут на шард текущей транзакции.
+ */
+public class ShardRoutingInterceptor implements MethodInterceptor {
+
+    static final List<Class<?>> ROUTED = List.of(CardRepository.class, UserRepository.class,
+            RefreshTokenRepository.class, UserBulkRepository.class);
+
+    private final ShardRouter shardRouter;
+
+    public ShardRoutingInterceptor(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    // Совет для всех методов маршрутизируемых репозиториев, включая унаследованные от JpaRepository
+    public static Advisor advisor(ShardRouter shardRouter) {
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return method.getDeclaringClass() != Object.class
+                        && ROUTED.stream().anyMatch(type -> type.isAssignableFrom(targetClass));
+            }
+        };
+        return new DefaultPointcutAdvisor(pointcut, new ShardRoutingInterceptor(shardRouter));
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (isAllShards(invocation)) {
+            // Внутри рабочей транзакции шарда запрос выполняется как обычный
+            return ShardContext.isPinned() ? invocation.proceed() : scatter(invocation);
+        }
+        Object[] args = invocation.getArguments();
+        Integer shard = args.length == 0 ? null : shardOf(args[0], method.getName().contains("Username"));
+        if (shard == null) {
+            return invocation.proceed();
+        }
+        Runnable unbind = ShardContext.bind(shard, false);
+        try {
+            return invocation.proceed();
+        } finally {
+            unbind.run();
+        }
+    }
+
+    // Аннотация ищется на объявлении в интерфейсе репозитория, а не на методе базового JpaRepository
+    private static boolean isAllShards(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        if (method.isAnnotationPresent(AllShards.class)) {
+            return true;
+        }
+        Object target = invocation.getThis();
+        for (Class<?> type : ROUTED) {
+            if (type.isInstance(target)) {
+                Method declared = ReflectionUtils.findMethod(type, method.getName(), method.getParameterTypes());
+                return declared != null && declared.isAnnotationPresent(AllShards.class);
+            }
+        }
+        return false;
+    }
+
+    private Object scatter(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        Object[] args = invocation.getArguments();
+        // Страница N объединённого результата может целиком лежать на одном шарде:
+        // с каждого берутся первые (N + 1) * size строк
+        Pageable pageable = null;
+        Object[] shardArgs = args.clone();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof Pageable page && page.isPaged()) {
+                pageable = page;
+                shardArgs[i] = PageRequest.of(0, (page.getPageNumber() + 1) * page.getPageSize(), page.getSort());
+            }
+        }
+        boolean readOnly = !method.isAnnotationPresent(Modifying.class);
+        Object proxy = ((ProxyMethodInvocation) invocation).getProxy();
+        List<Object> results = shardRouter.onAllShards(readOnly, shard -> invoke(method, proxy, shardArgs));
+        return merge(method.getReturnType(), pageable, results);
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object merge(Class<?> type, Pageable pageable, List<Object> results) {
+        if (Slice.class.isAssignableFrom(type)) {
+            List<Object> merged = new ArrayList<>();
+            results.forEach(result -> merged.addAll(((Slice<Object>) result).getContent()));
+            merged.sort(Comparator.comparing(ShardRoutingInterceptor::idOf));
+            int from = (int) Math.min(merged.size(), pageable.getOffset());
+            int to = Math.min(merged.size(), from + pageable.getPageSize());
+            return new SliceImpl<>(new ArrayList<>(merged.subList(from, to)), pageable, merged.size() > to);
+        }
+        if (List.class.isAssignableFrom(type)) {
+            List<Object> merged = new ArrayList<>();
+            results.forEach(result -> merged.addAll((List<Object>) result));
+            merged.sort(Comparator.comparing(ShardRoutingInterceptor::idOf));
+            return merged;
+        }
+        if (type == int.class || type == Integer.class) {
+            return results.stream().mapToInt(result -> (Integer) result).sum();
+        }
+        if (type == long.class || type == Long.class) {
+            return results.stream().mapToLong(result -> (Long) result).sum();
+        }
+        if (type == Optional.class) {
+            return results.stream().map(result -> (Optional<Object>) result)
+                    .filter(Optional::isPresent).findFirst().orElse(Optional.empty());
+        }
+        throw new IllegalStateException("Cannot merge shard results of type " + type.getName());
+    }
+
+    private static Long idOf(Object row) {
+        if (row instanceof Long id) {
+            return id;
+        }
+        if (row instanceof Card card) {
+            return card.getId();
+        }
+        if (row instanceof User user) {
+            return user.getId();
+        }
+        if (row instanceof CardVersion version) {
+            return version.id();
+        }
+        if (row instanceof UserSummary summary) {
+            return summary.getId();
+        }
+        throw new IllegalStateException("Cannot order shard results of type " + row.getClass().getName());
+    }
+
+    // null — аргумент не определяет шард
+    private Integer shardOf(Object key, boolean username) {
+        if (key instanceof Long id) {
+            return shardRouter.shardOfId(id);
+        }
+        if (key instanceof String name) {
+            return username ? shardRouter.shardOfUsername(name) : null;
+        }
+        if (key instanceof User user) {
+            return user.getId() != null ? shardRouter.shardOfId(user.getId())
+                    : user.getUsername() != null ? shardRouter.shardOfUsername(user.getUsername()) : null;
+        }
+        if (key instanceof Card card) {
+            return card.getId() != null ? shardRouter.shardOfId(card.getId()) : shardOf(card.getOwner(), false);
+        }
+        if (key instanceof RefreshToken token) {
+            return token.getId() != null ? shardRouter.shardOfId(token.getId()) : shardOf(token.getUser(), false);
+        }
+        if (key instanceof NewUser user) {
+            return shardRouter.shardOfUsername(user.username());
+        }
+        if (key instanceof Iterable<?> batch) {
+            Integer shard = null;
+            for (Object item : batch) {
+                Integer itemShard = shardOf(item, username);
+                if (itemShard == null || shard != null && !shard.equals(itemShard)) {
+                    throw new IllegalStateException("Batch must belong to a single shard");
+                }
+                shard = itemShard;
+            }
+            return shard;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.service.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.aop.Advisor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пользователи и карты, разложенные по нескольким БД (шардам) за маршрутизирующим DataSource.
+ * Включается sharding.enabled=true; с datasource-routing одновременно не используется.
+ * Таблицы без ключа пользователя (outbox, аудит, статистика, лимиты карт) пишутся
+ * на шард транзакции; фоновые задачи по ним обходят все шарды.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(ShardingProperties properties) {
+        List<ShardingProperties.Shard> shards = properties.getShards();
+        if (shards.size() < 2) {
+            throw new IllegalStateException("Sharding requires at least two shards");
+        }
+        Map<Object, Object> targets = new HashMap<>();
+        List<DataSource> pools = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            ShardingProperties.Shard shard = shards.get(i);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("shard-" + i + "-pool");
+            pool.setJdbcUrl(shard.getJdbcUrl());
+            pool.setUsername(shard.getUsername());
+            pool.setPassword(shard.getPassword());
+            if (shard.getDriverClassName() != null) {
+                pool.setDriverClassName(shard.getDriverClassName());
+            }
+            pool.setMaximumPoolSize(shard.getMaximumPoolSize());
+            targets.put(i, pool);
+            pools.add(pool);
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(pools.get(0));
+        return routing;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public Advisor shardRoutingAdvisor(ShardRouter shardRouter) {
+        return ShardRoutingInterceptor.advisor(shardRouter);
+    }
+}
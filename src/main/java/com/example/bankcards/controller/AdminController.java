@@ -0,0 +1,63 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.ArchivedCardResponse;
+import com.example.bankcards.dto.ArchivedCardsResponse;
+import com.example.bankcards.dto.CardStatsResponse;
+import com.example.bankcards.dto.UserCardStatsResponse;
+import com.example.bankcards.service.CardArchiveService;
+import com.example.bankcards.service.CardStatsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Администрирование", description = "Статистика и архив карт (только ADMIN)")
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final CardStatsService cardStatsService;
+    private final CardArchiveService cardArchiveService;
+
+    public AdminController(CardStatsService cardStatsService, CardArchiveService cardArchiveService) {
+        this.cardStatsService = cardStatsService;
+        this.cardArchiveService = cardArchiveService;
+    }
+
+    @Operation(summary = "Статистика по картам",
+            description = "Количество карт по статусам, общий баланс и карты, истекающие в ближайшие месяцы (только ADMIN)")
+    @GetMapping("/stats")
+    public ResponseEntity<CardStatsResponse> getStats() {
+        return ResponseEntity.ok(cardStatsService.getStats());
+    }
+
+    @Operation(summary = "Статистика пользователя", description = "Количество карт и общий баланс пользователя (только ADMIN)")
+    @GetMapping("/stats/users/{userId}")
+    public ResponseEntity<UserCardStatsResponse> getUserStats(
+            @Parameter(description = "ID пользователя") @PathVariable Long userId) {
+        return ResponseEntity.ok(cardStatsService.getUserStats(userId));
+    }
+
+    @Operation(summary = "Архивные карты пользователя",
+            description = "Давно истёкшие и удалённые карты, перенесённые из основной таблицы; " +
+                    "обычные списки карт их не содержат (только ADMIN)")
+    @GetMapping("/archive/cards")
+    public ResponseEntity<ArchivedCardsResponse> getArchivedCards(
+            @Parameter(description = "ID владельца") @RequestParam Long ownerId,
+            @Parameter(description = "Номер страницы") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Размер страницы") @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(cardArchiveService.getArchivedCards(ownerId, page, size));
+    }
+
+    @Operation(summary = "Архивная карта", description = "Карта из архива по её ID (только ADMIN)")
+    @GetMapping("/archive/cards/{id}")
+    public ResponseEntity<ArchivedCardResponse> getArchivedCard(
+            @Parameter(description = "ID карты") @PathVariable Long id) {
+        return ResponseEntity.ok(cardArchiveService.getArchivedCard(id));
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.LoginRequest;
+import com.example.bankcards.dto.RefreshRequest;
 import com.example.bankcards.dto.RegisterRequest;
-import com.example.bankcards.util.JwtUtil;
+import com.example.bankcards.dto.TokenResponse;
+import com.example.bankcards.service.RefreshTokenService;
 import com.example.bankcards.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -20,12 +22,13 @@ import io.swagger.v3.oas.annotations.Parameter;
 public class AuthController {
 
     private final AuthenticationManager authManager;
-    private final JwtUtil jwtUtil;
+    private final RefreshTokenService refreshTokenService;
     private final UserService userService;
 
-    public AuthController(AuthenticationManager authManager, JwtUtil jwtUtil, UserService userService) {
+    public AuthController(AuthenticationManager authManager, RefreshTokenService refreshTokenService,
+                          UserService userService) {
         this.authManager = authManager;
-        this.jwtUtil = jwtUtil;
+        this.refreshTokenService = refreshTokenService;
         this.userService = userService;
     }
 
@@ -43,17 +46,39 @@ public class AuthController {
 
     @Operation(
             summary = "Вход пользователя",
-            description = "Аутентификация по логину и паролю. Возвращает JWT токен для дальнейших запросов."
+            description = "Аутентификация по логину и паролю. Возвращает короткоживущий JWT access-токен и refresh-токен."
     )
     @PostMapping("/login")
-    public ResponseEntity<String> login(
+    public ResponseEntity<TokenResponse> login(
             @Parameter(description = "Данные для входа: логин и пароль")
             @RequestBody LoginRequest request) {
         Authentication authentication = authManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
         );
-        String token = jwtUtil.generateToken((UserDetails) authentication.getPrincipal());
-        return ResponseEntity.ok(token);
+        return ResponseEntity.ok(refreshTokenService.login((UserDetails) authentication.getPrincipal()));
+    }
+
+    @Operation(
+            summary = "Обновление токена",
+            description = "Обмен refresh-токена на новую пару токенов. Старый refresh-токен становится недействительным."
+    )
+    @PostMapping("/refresh")
+    public ResponseEntity<TokenResponse> refresh(
+            @Parameter(description = "Действующий refresh-токен")
+            @RequestBody RefreshRequest request) {
+        return ResponseEntity.ok(refreshTokenService.refresh(request.getRefreshToken()));
+    }
+
+    @Operation(
+            summary = "Выход",
+            description = "Отзыв сессии: refresh-токен и выданные по нему access-токены перестают действовать."
+    )
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @Parameter(description = "Refresh-токен завершаемой сессии")
+            @RequestBody RefreshRequest request) {
+        refreshTokenService.revoke(request.getRefreshToken());
+        return ResponseEntity.ok().build();
     }
 }
 
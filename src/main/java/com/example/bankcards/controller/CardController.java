@@ -1,52 +1,114 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BulkStatusRequest;
+import com.example.bankcards.dto.BulkStatusResponse;
+import com.example.bankcards.dto.CardLimitRequest;
+import com.example.bankcards.dto.CardLimitResponse;
 import com.example.bankcards.dto.CardRequest;
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.JobState;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.security.JwtAuthenticationDetails;
+import com.example.bankcards.service.CardBulkStatusService;
+import com.example.bankcards.service.CardEventStream;
+import com.example.bankcards.service.CardLimitService;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.util.ETags;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 import java.math.BigDecimal;
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Tag(name = "Карты", description = "Эндпоинты для управления картами")
 @RestController
 @RequestMapping("/cards")
 public class CardController {
 
+    // Клиент может хранить ответ, но обязан перепроверять его по ETag; общий для ответов с ETag
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final CardService cardService;
+    private final CardEventStream cardEventStream;
+    private final CardBulkStatusService cardBulkStatusService;
+    private final CardLimitService cardLimitService;
 
-    public CardController(CardService cardService) {
+    public CardController(CardService cardService, CardEventStream cardEventStream,
+                          CardBulkStatusService cardBulkStatusService, CardLimitService cardLimitService) {
         this.cardService = cardService;
+        this.cardEventStream = cardEventStream;
+        this.cardBulkStatusService = cardBulkStatusService;
+        this.cardLimitService = cardLimitService;
     }
 
     @Operation(summary = "Создать карту", description = "Создание новой карты для пользователя (только ADMIN)")
     @PostMapping
-    public ResponseEntity<Card> createCard(
+    public ResponseEntity<CardResponse> createCard(
             @Valid @RequestBody CardRequest request,
             @Parameter(description = "ID владельца карты") @RequestParam Long userId) {
         Card card = new Card();
         card.setCardNumber(request.getCardNumber());
         card.setExpirationDate(request.getExpirationDate());
         card.setBalance(request.getBalance());
-        return ResponseEntity.ok(cardService.createCard(card, userId));
+        return ResponseEntity.ok(CardResponse.of(cardService.createCard(card, userId)));
     }
 
-    @Operation(summary = "Список карт", description = "ADMIN видит все карты, USER только свои")
+    @Operation(summary = "Список карт",
+            description = "ADMIN видит все карты, USER только свои. Поддерживает If-None-Match: 304, если карты не менялись")
     @GetMapping
-    public ResponseEntity<List<Card>> getCards() {
-        return ResponseEntity.ok(cardService.getCardsForCurrentUser());
+    public ResponseEntity<List<CardResponse>> getCards(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // ETag считается до загрузки карт: он никогда не новее отданного тела
+        String etag = cardService.getCardsEtag();
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT)
+                .body(cardService.getCardsForCurrentUser(etag).stream().map(CardResponse::of).toList());
+    }
+
+    @Operation(summary = "Поток изменений карт",
+            description = "Server-Sent Events: создание, блокировка, изменение баланса и удаление карт. "
+                    + "ADMIN получает события по всем картам, USER только по своим. "
+                    + "Поток закрывается по истечении access-токена или при выходе из сессии")
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(Authentication authentication) {
+        if (authentication.getDetails() instanceof JwtAuthenticationDetails details) {
+            return cardEventStream.subscribe(authentication.getName(), details.getTokenSessionId(), details.getExpiresAt());
+        }
+        return cardEventStream.subscribe(authentication.getName(), null, null);
     }
 
-    @Operation(summary = "Просмотр карты", description = "Получение информации о карте по её ID")
+    @Operation(summary = "Просмотр карты",
+            description = "Получение информации о карте по её ID. Поддерживает If-None-Match: 304, если карта не менялась")
     @GetMapping("/{id}")
-    public ResponseEntity<Card> getCard(@Parameter(description = "ID карты") @PathVariable Long id) {
-        return ResponseEntity.of(cardService.getCardsForCurrentUser()
-                .stream().filter(c -> c.getId().equals(id)).findFirst());
+    public ResponseEntity<CardResponse> getCard(
+            @Parameter(description = "ID карты") @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<String> etag = cardService.getCardEtag(id);
+        if (etag.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (ETags.matches(ifNoneMatch, etag.get())) {
+            return notModified(etag.get());
+        }
+        return cardService.getCardForCurrentUser(id)
+                .map(card -> ResponseEntity.ok().eTag(etag.get()).cacheControl(REVALIDATE)
+                        .varyBy(HttpHeaders.ACCEPT).body(CardResponse.of(card)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @Operation(summary = "Блокировка карты", description = "Блокировка карты (только ADMIN)")
@@ -63,6 +125,43 @@ public class CardController {
         return ResponseEntity.ok().build();
     }
 
+    @Operation(summary = "Массовая смена статуса",
+            description = "Блокировка или активация карт по списку id и/или фильтру: владелец, диапазон срока действия, " +
+                    "текущий статус (только ADMIN). Большие выборки обрабатываются в фоне: ответ 202 содержит id задачи")
+    @PutMapping("/status/bulk")
+    public ResponseEntity<BulkStatusResponse> changeStatusBulk(@Valid @RequestBody BulkStatusRequest request) {
+        BulkStatusResponse response = cardBulkStatusService.changeStatus(request);
+        if (response.getState() == JobState.COMPLETED || response.getState() == JobState.FAILED) {
+            return ResponseEntity.ok(response);
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/cards/status/bulk/" + response.getJobId()))
+                .body(response);
+    }
+
+    @Operation(summary = "Состояние массовой смены статуса", description = "Ход фоновой задачи (только ADMIN)")
+    @GetMapping("/status/bulk/{jobId}")
+    public ResponseEntity<BulkStatusResponse> getBulkStatus(
+            @Parameter(description = "ID задачи") @PathVariable UUID jobId) {
+        return ResponseEntity.ok(cardBulkStatusService.getStatus(jobId));
+    }
+
+    @Operation(summary = "Лимиты карты",
+            description = "Дневной и месячный лимит трат и суммы переводов за скользящие 24 часа и 30 суток (только ADMIN)")
+    @GetMapping("/{id}/limits")
+    public ResponseEntity<CardLimitResponse> getLimits(@Parameter(description = "ID карты") @PathVariable Long id) {
+        return ResponseEntity.ok(cardLimitService.getLimits(id));
+    }
+
+    @Operation(summary = "Установка лимитов карты",
+            description = "Пустое значение снимает лимит. Переводы сверх лимита отклоняются с 422 (только ADMIN)")
+    @PutMapping("/{id}/limits")
+    public ResponseEntity<CardLimitResponse> setLimits(
+            @Parameter(description = "ID карты") @PathVariable Long id,
+            @Valid @RequestBody CardLimitRequest request) {
+        return ResponseEntity.ok(cardLimitService.setLimits(id, request));
+    }
+
     @Operation(summary = "Удаление карты", description = "Удаление карты (только ADMIN)")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCard(@Parameter(description = "ID карты") @PathVariable Long id) {
@@ -86,4 +185,9 @@ public class CardController {
         cardService.transfer(fromCardId, toCardId, amount);
         return ResponseEntity.ok().build();
     }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE)
+                .varyBy(HttpHeaders.ACCEPT).build();
+    }
 }
@@ -1,21 +1,37 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BulkUserFormat;
+import com.example.bankcards.dto.BulkUserResponse;
+import com.example.bankcards.dto.JobState;
+import com.example.bankcards.dto.UserDeletionStatus;
+import com.example.bankcards.dto.UserSearchMode;
+import com.example.bankcards.dto.UserSearchResponse;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.service.UserService;
+import com.example.bankcards.util.ETags;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.security.Principal;
 import java.util.List;
+import java.util.UUID;
 
 @Tag(name = "Пользователи", description = "Эндпоинты для управления пользователями (только ADMIN)")
 @RestController
 @RequestMapping("/users")
 public class UserController {
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
     private final UserService userService;
 
     public UserController(UserService userService) {
@@ -29,24 +45,68 @@ public class UserController {
         return ResponseEntity.ok(userService.createUser(user));
     }
 
+    @Operation(summary = "Массовое создание пользователей",
+            description = "Тело читается потоком: CSV (text/csv, строки username,password[,role]) или NDJSON " +
+                    "(application/x-ndjson). Существующие username пропускаются и считаются дубликатами (только ADMIN)")
+    @PostMapping(value = "/bulk", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<BulkUserResponse> importUsers(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        BulkUserFormat format = contentType.isCompatibleWith(TEXT_CSV) ? BulkUserFormat.CSV : BulkUserFormat.NDJSON;
+        return ResponseEntity.ok(userService.importUsers(body, format));
+    }
+
     @Operation(summary = "Список пользователей", description = "Получение списка всех пользователей (только ADMIN)")
     @GetMapping
     public ResponseEntity<List<User>> getAllUsers() {
         return ResponseEntity.ok(userService.getAllUsers());
     }
 
-    @Operation(summary = "Удалить пользователя", description = "Удаление пользователя по ID (только ADMIN)")
+    @Operation(summary = "Поиск пользователей",
+            description = "Поиск по началу (PREFIX) или части (CONTAINS, от 3 символов) username, не более 50 на странице (только ADMIN)")
+    @GetMapping("/search")
+    public ResponseEntity<UserSearchResponse> searchUsers(
+            @Parameter(description = "Строка поиска") @RequestParam String q,
+            @Parameter(description = "Режим поиска") @RequestParam(defaultValue = "PREFIX") UserSearchMode mode,
+            @Parameter(description = "Номер страницы") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Размер страницы") @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(userService.searchUsers(q, mode, page, size));
+    }
+
+    @Operation(summary = "Удалить пользователя",
+            description = "Удаление пользователя и его карт по ID (только ADMIN). Пользователь с большим числом карт " +
+                    "удаляется в фоне: ответ 202 содержит id задачи для GET /users/deletions/{jobId}")
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteUser(
+    public ResponseEntity<UserDeletionStatus> deleteUser(
             @Parameter(description = "ID пользователя для удаления") @PathVariable Long id) {
-        userService.deleteUser(id);
-        return ResponseEntity.ok().build();
+        UserDeletionStatus status = userService.deleteUser(id);
+        if (status.getState() == JobState.COMPLETED) {
+            return ResponseEntity.ok().build();
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/users/deletions/" + status.getJobId()))
+                .body(status);
+    }
+
+    @Operation(summary = "Состояние удаления", description = "Ход фонового удаления пользователя (только ADMIN)")
+    @GetMapping("/deletions/{jobId}")
+    public ResponseEntity<UserDeletionStatus> getDeletionStatus(
+            @Parameter(description = "ID задачи удаления") @PathVariable UUID jobId) {
+        return ResponseEntity.ok(userService.getDeletionStatus(jobId));
     }
 
-    @Operation(summary = "Текущий пользователь", description = "Получение информации о текущем авторизованном пользователе")
+    @Operation(summary = "Текущий пользователь",
+            description = "Получение информации о текущем авторизованном пользователе. Поддерживает If-None-Match")
     @GetMapping("/me")
-    public ResponseEntity<User> getCurrentUser(Principal principal) {
-        return ResponseEntity.ok(userService.getCurrentUser(principal.getName()));
+    public ResponseEntity<User> getCurrentUser(
+            Principal principal,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = userService.getCurrentUserEtag(principal.getName());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CardController.REVALIDATE)
+                    .varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CardController.REVALIDATE).varyBy(HttpHeaders.ACCEPT)
+                .body(userService.getCurrentUser(principal.getName(), etag));
     }
 }
-
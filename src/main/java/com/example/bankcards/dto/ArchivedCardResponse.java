@@ -0,0 +1,84 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardArchiveReason;
+import com.example.bankcards.entity.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+// Карта из архива: состояние на момент переноса из cards
+public class ArchivedCardResponse {
+    private Long id;
+    private Long ownerId;
+    private String maskedCardNumber;
+    private LocalDate expirationDate;
+    private CardStatus status;
+    private BigDecimal balance;
+    private CardArchiveReason reason;
+    private Instant archivedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(Long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public String getMaskedCardNumber() {
+        return maskedCardNumber;
+    }
+
+    public void setMaskedCardNumber(String maskedCardNumber) {
+        this.maskedCardNumber = maskedCardNumber;
+    }
+
+    public LocalDate getExpirationDate() {
+        return expirationDate;
+    }
+
+    public void setExpirationDate(LocalDate expirationDate) {
+        this.expirationDate = expirationDate;
+    }
+
+    public CardStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(CardStatus status) {
+        this.status = status;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public CardArchiveReason getReason() {
+        return reason;
+    }
+
+    public void setReason(CardArchiveReason reason) {
+        this.reason = reason;
+    }
+
+    public Instant getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(Instant archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+public class ArchivedCardsResponse {
+    private List<ArchivedCardResponse> cards;
+    private int page;
+    private int size;
+    private boolean hasNext;
+
+    public ArchivedCardsResponse() {
+    }
+
+    public ArchivedCardsResponse(List<ArchivedCardResponse> cards, int page, int size, boolean hasNext) {
+        this.cards = cards;
+        this.page = page;
+        this.size = size;
+        this.hasNext = hasNext;
+    }
+
+    public List<ArchivedCardResponse> getCards() {
+        return cards;
+    }
+
+    public void setCards(List<ArchivedCardResponse> cards) {
+        this.cards = cards;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.AuditAction;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// Запись аудита; targetCardId и amount заполняются только для переводов
+public record AuditEvent(AuditAction action,
+                         Long cardId,
+                         Long targetCardId,
+                         BigDecimal amount,
+                         String actor,
+                         Instant createdAt) {
+}
@@ -0,0 +1,73 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Выбор карт: список id и/или фильтр; заданные условия объединяются через AND
+public class BulkStatusRequest {
+    @NotNull
+    private CardStatus status;
+
+    @Size(max = 10000)
+    private List<Long> cardIds;
+
+    private Long ownerId;
+
+    private LocalDate expiresFrom;
+
+    private LocalDate expiresTo;
+
+    private CardStatus currentStatus;
+
+    public CardStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(CardStatus status) {
+        this.status = status;
+    }
+
+    public List<Long> getCardIds() {
+        return cardIds;
+    }
+
+    public void setCardIds(List<Long> cardIds) {
+        this.cardIds = cardIds;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(Long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public LocalDate getExpiresFrom() {
+        return expiresFrom;
+    }
+
+    public void setExpiresFrom(LocalDate expiresFrom) {
+        this.expiresFrom = expiresFrom;
+    }
+
+    public LocalDate getExpiresTo() {
+        return expiresTo;
+    }
+
+    public void setExpiresTo(LocalDate expiresTo) {
+        this.expiresTo = expiresTo;
+    }
+
+    public CardStatus getCurrentStatus() {
+        return currentStatus;
+    }
+
+    public void setCurrentStatus(CardStatus currentStatus) {
+        this.currentStatus = currentStatus;
+    }
+}
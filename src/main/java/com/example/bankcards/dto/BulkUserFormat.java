@@ -0,0 +1,6 @@
+package com.example.bankcards.dto;
+
+public enum BulkUserFormat {
+    CSV,    // text/csv: username,password[,role], необязательная строка заголовка
+    NDJSON  // application/x-ndjson: {"username": ..., "password": ..., "role": ...} на строку
+}
@@ -0,0 +1,53 @@
+package com.example.bankcards.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Итог импорта; errors — первые ошибки разбора с номерами строк
+public class BulkUserResponse {
+    private long received;
+    private long created;
+    private long duplicates;
+    private long rejected;
+    private List<String> errors = new ArrayList<>();
+
+    public long getReceived() {
+        return received;
+    }
+
+    public void setReceived(long received) {
+        this.received = received;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public void setCreated(long created) {
+        this.created = created;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(long duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+}
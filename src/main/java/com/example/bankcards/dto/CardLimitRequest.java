@@ -0,0 +1,33 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+
+import java.math.BigDecimal;
+
+// Пустое значение снимает соответствующий лимит
+public class CardLimitRequest {
+    @DecimalMin("0.01")
+    @Digits(integer = 17, fraction = 2)
+    private BigDecimal dailyLimit;
+
+    @DecimalMin("0.01")
+    @Digits(integer = 17, fraction = 2)
+    private BigDecimal monthlyLimit;
+
+    public BigDecimal getDailyLimit() {
+        return dailyLimit;
+    }
+
+    public void setDailyLimit(BigDecimal dailyLimit) {
+        this.dailyLimit = dailyLimit;
+    }
+
+    public BigDecimal getMonthlyLimit() {
+        return monthlyLimit;
+    }
+
+    public void setMonthlyLimit(BigDecimal monthlyLimit) {
+        this.monthlyLimit = monthlyLimit;
+    }
+}
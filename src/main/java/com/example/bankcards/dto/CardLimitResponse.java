@@ -0,0 +1,64 @@
+package com.example.bankcards.dto;
+
+import java.math.BigDecimal;
+
+// Траты — за скользящие 24 часа и 30 суток
+public class CardLimitResponse {
+    private Long cardId;
+    private BigDecimal dailyLimit;
+    private BigDecimal monthlyLimit;
+    private BigDecimal dailySpent;
+    private BigDecimal monthlySpent;
+
+    public CardLimitResponse() {
+    }
+
+    public CardLimitResponse(Long cardId, BigDecimal dailyLimit, BigDecimal monthlyLimit,
+                             BigDecimal dailySpent, BigDecimal monthlySpent) {
+        this.cardId = cardId;
+        this.dailyLimit = dailyLimit;
+        this.monthlyLimit = monthlyLimit;
+        this.dailySpent = dailySpent;
+        this.monthlySpent = monthlySpent;
+    }
+
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public void setCardId(Long cardId) {
+        this.cardId = cardId;
+    }
+
+    public BigDecimal getDailyLimit() {
+        return dailyLimit;
+    }
+
+    public void setDailyLimit(BigDecimal dailyLimit) {
+        this.dailyLimit = dailyLimit;
+    }
+
+    public BigDecimal getMonthlyLimit() {
+        return monthlyLimit;
+    }
+
+    public void setMonthlyLimit(BigDecimal monthlyLimit) {
+        this.monthlyLimit = monthlyLimit;
+    }
+
+    public BigDecimal getDailySpent() {
+        return dailySpent;
+    }
+
+    public void setDailySpent(BigDecimal dailySpent) {
+        this.dailySpent = dailySpent;
+    }
+
+    public BigDecimal getMonthlySpent() {
+        return monthlySpent;
+    }
+
+    public void setMonthlySpent(BigDecimal monthlySpent) {
+        this.monthlySpent = monthlySpent;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Карта в ответе API: только маскированный номер и id/username владельца, без сущности User
+public class CardResponse {
+    private Long id;
+    private String maskedCardNumber;
+    private LocalDate expirationDate;
+    private CardStatus status;
+    private BigDecimal balance;
+    private Long ownerId;
+    private String ownerUsername;
+
+    public static CardResponse of(Card card) {
+        CardResponse response = new CardResponse();
+        response.setId(card.getId());
+        response.setMaskedCardNumber(card.getMaskedCardNumber());
+        response.setExpirationDate(card.getExpirationDate());
+        response.setStatus(card.getStatus());
+        response.setBalance(card.getBalance());
+        response.setOwnerId(card.getOwner().getId());
+        response.setOwnerUsername(card.getOwner().getUsername());
+        return response;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getMaskedCardNumber() {
+        return maskedCardNumber;
+    }
+
+    public void setMaskedCardNumber(String maskedCardNumber) {
+        this.maskedCardNumber = maskedCardNumber;
+    }
+
+    public LocalDate getExpirationDate() {
+        return expirationDate;
+    }
+
+    public void setExpirationDate(LocalDate expirationDate) {
+        this.expirationDate = expirationDate;
+    }
+
+    public CardStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(CardStatus status) {
+        this.status = status;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(Long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public String getOwnerUsername() {
+        return ownerUsername;
+    }
+
+    public void setOwnerUsername(String ownerUsername) {
+        this.ownerUsername = ownerUsername;
+    }
+}
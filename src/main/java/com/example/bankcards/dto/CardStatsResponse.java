@@ -0,0 +1,54 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+public class CardStatsResponse {
+    private long totalCards;
+    private BigDecimal totalBalance;
+    private Map<CardStatus, Long> cardsByStatus;
+    private long expiringSoon;
+    private Map<String, Long> expiringByMonth; // "2026-11" -> количество карт
+
+    public long getTotalCards() {
+        return totalCards;
+    }
+
+    public void setTotalCards(long totalCards) {
+        this.totalCards = totalCards;
+    }
+
+    public BigDecimal getTotalBalance() {
+        return totalBalance;
+    }
+
+    public void setTotalBalance(BigDecimal totalBalance) {
+        this.totalBalance = totalBalance;
+    }
+
+    public Map<CardStatus, Long> getCardsByStatus() {
+        return cardsByStatus;
+    }
+
+    public void setCardsByStatus(Map<CardStatus, Long> cardsByStatus) {
+        this.cardsByStatus = cardsByStatus;
+    }
+
+    public long getExpiringSoon() {
+        return expiringSoon;
+    }
+
+    public void setExpiringSoon(long expiringSoon) {
+        this.expiringSoon = expiringSoon;
+    }
+
+    public Map<String, Long> getExpiringByMonth() {
+        return expiringByMonth;
+    }
+
+    public void setExpiringByMonth(Map<String, Long> expiringByMonth) {
+        this.expiringByMonth = expiringByMonth;
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.bankcards.dto;
+
+// Id и версия карты: всё, что нужно для ETag, без загрузки и расшифровки карты
+public record CardVersion(Long id, Long version) {
+}
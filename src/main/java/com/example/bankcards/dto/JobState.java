@@ -0,0 +1,6 @@
+package com.example.bankcards.dto;
+
+// Состояние фоновой задачи (удаление пользователя, массовая смена статуса карт)
+public enum JobState {
+    PENDING, RUNNING, COMPLETED, FAILED
+}
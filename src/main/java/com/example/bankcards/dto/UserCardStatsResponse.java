@@ -0,0 +1,42 @@
+package com.example.bankcards.dto;
+
+import java.math.BigDecimal;
+
+public class UserCardStatsResponse {
+    private Long userId;
+    private long cardCount;
+    private BigDecimal totalBalance;
+
+    public UserCardStatsResponse() {
+    }
+
+    public UserCardStatsResponse(Long userId, long cardCount, BigDecimal totalBalance) {
+        this.userId = userId;
+        this.cardCount = cardCount;
+        this.totalBalance = totalBalance;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public long getCardCount() {
+        return cardCount;
+    }
+
+    public void setCardCount(long cardCount) {
+        this.cardCount = cardCount;
+    }
+
+    public BigDecimal getTotalBalance() {
+        return totalBalance;
+    }
+
+    public void setTotalBalance(BigDecimal totalBalance) {
+        this.totalBalance = totalBalance;
+    }
+}
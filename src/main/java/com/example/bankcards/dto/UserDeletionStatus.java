@@ -0,0 +1,80 @@
+package com.example.bankcards.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public class UserDeletionStatus {
+
+    private UUID jobId;
+    private Long userId;
+    private JobState state;
+    private long totalCards;
+    private long deletedCards;
+    private String error;
+    private Instant startedAt;
+    private Instant finishedAt;
+
+    public UUID getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(UUID jobId) {
+        this.jobId = jobId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public JobState getState() {
+        return state;
+    }
+
+    public void setState(JobState state) {
+        this.state = state;
+    }
+
+    public long getTotalCards() {
+        return totalCards;
+    }
+
+    public void setTotalCards(long totalCards) {
+        this.totalCards = totalCards;
+    }
+
+    public long getDeletedCards() {
+        return deletedCards;
+    }
+
+    public void setDeletedCards(long deletedCards) {
+        this.deletedCards = deletedCards;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
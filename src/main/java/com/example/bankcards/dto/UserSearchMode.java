@@ -0,0 +1,6 @@
+package com.example.bankcards.dto;
+
+public enum UserSearchMode {
+    PREFIX,   // username начинается с q
+    CONTAINS  // username содержит q (не короче 3 символов)
+}
@@ -0,0 +1,52 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+public class UserSearchResponse {
+    private List<UserSummary> users;
+    private int page;
+    private int size;
+    private boolean hasNext;
+
+    public UserSearchResponse() {
+    }
+
+    public UserSearchResponse(List<UserSummary> users, int page, int size, boolean hasNext) {
+        this.users = users;
+        this.page = page;
+        this.size = size;
+        this.hasNext = hasNext;
+    }
+
+    public List<UserSummary> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<UserSummary> users) {
+        this.users = users;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
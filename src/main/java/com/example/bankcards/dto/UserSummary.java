@@ -0,0 +1,43 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.Role;
+
+// Краткие данные пользователя для поиска: без пароля и коллекции карт
+public class UserSummary {
+    private Long id;
+    private String username;
+    private Role role;
+
+    public UserSummary() {
+    }
+
+    public UserSummary(Long id, String username, Role role) {
+        this.id = id;
+        this.username = username;
+        this.role = role;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public void setRole(Role role) {
+        this.role = role;
+    }
+}
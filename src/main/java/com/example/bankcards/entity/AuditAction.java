@@ -0,0 +1,5 @@
+package com.example.bankcards.entity;
+
+public enum AuditAction {
+    BLOCK, ACTIVATE, DELETE, REQUEST_BLOCK, TRANSFER
+}
@@ -1,13 +1,18 @@
 package com.example.bankcards.entity;
 
 import com.example.bankcards.util.CardNumberEncryptor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
 @Table(name = "cards")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "cards")
 public class Card {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -19,6 +24,8 @@ public class Card {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", nullable = false)
+    // Владелец в ответе без своих карт: иначе Card -> owner -> cards -> Card без конца
+    @JsonIgnoreProperties({"cards", "hibernateLazyInitializer", "handler"})
     private User owner;
 
     @Column(nullable = false)
@@ -31,6 +38,11 @@ public class Card {
     @Column(nullable = false)
     private BigDecimal balance;
 
+    // Растёт при каждом изменении карты; из него строится ETag (GET /cards, GET /cards/{id})
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     // Маскированный вывод
     public String getMaskedCardNumber() {
         if (cardNumber == null || cardNumber.length() < 4) return "****";
@@ -45,6 +57,8 @@ public class Card {
         this.id = id;
     }
 
+    // Полный номер наружу не отдаётся, даже если карта попала в ответ как сущность (User.cards)
+    @JsonIgnore
     public String getCardNumber() {
         return cardNumber;
     }
@@ -84,5 +98,8 @@ public class Card {
     public void setBalance(BigDecimal balance) {
         this.balance = balance;
     }
-}
 
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.bankcards.entity;
+
+// Почему карта перенесена в cards_archive
+public enum CardArchiveReason {
+    EXPIRED, DELETED
+}
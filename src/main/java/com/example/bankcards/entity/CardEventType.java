@@ -0,0 +1,5 @@
+package com.example.bankcards.entity;
+
+public enum CardEventType {
+    CREATED, STATUS_CHANGED, BALANCE_CHANGED, DELETED
+}
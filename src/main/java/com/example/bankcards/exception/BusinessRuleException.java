@@ -0,0 +1,25 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+// 422: запрос корректен, но операция запрещена бизнес-правилом
+public class BusinessRuleException extends DomainException {
+
+    public static final BusinessRuleException INSUFFICIENT_FUNDS = new BusinessRuleException("Insufficient funds");
+    public static final BusinessRuleException DAILY_LIMIT_EXCEEDED =
+            new BusinessRuleException("Daily spending limit exceeded");
+    public static final BusinessRuleException MONTHLY_LIMIT_EXCEEDED =
+            new BusinessRuleException("Monthly spending limit exceeded");
+    public static final BusinessRuleException NON_POSITIVE_AMOUNT =
+            new BusinessRuleException("Transfer amount must be positive");
+    public static final BusinessRuleException INVALID_PAGE = new BusinessRuleException("Invalid page or size");
+
+    public BusinessRuleException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.UNPROCESSABLE_ENTITY;
+    }
+}
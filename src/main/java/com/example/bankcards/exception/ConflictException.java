@@ -0,0 +1,19 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+// 409: запрос противоречит текущему состоянию (например, имя пользователя уже занято)
+public class ConflictException extends DomainException {
+
+    public static final ConflictException USERNAME_TAKEN =
+            new ConflictException("Пользователь с таким именем уже существует");
+
+    public ConflictException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.CONFLICT;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+
+/**
+ * Ожидаемый бизнес-отказ (нет карты, недостаточно средств, имя занято).
+ * Стек не заполняется: отказ — штатный результат, а не ошибка в коде, и при всплесках
+ * (подбор карт, массовые переводы без средств) заполнение стека заметно грузит CPU.
+ * Тело ответа строится один раз, поэтому частые отказы объявлены константами.
+ */
+public abstract class DomainException extends RuntimeException {
+
+    private final Map<String, String> body;
+
+    protected DomainException(String message) {
+        super(message, null, false, false);
+        this.body = Map.of("error", message);
+    }
+
+    public abstract HttpStatus getStatus();
+
+    public Map<String, String> getBody() {
+        return body;
+    }
+}
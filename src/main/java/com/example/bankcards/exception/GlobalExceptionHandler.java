@@ -11,6 +11,12 @@ import java.util.Map;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    // Заранее собранное тело и статус из самого исключения
+    @ExceptionHandler(DomainException.class)
+    public ResponseEntity<Map<String, String>> handleDomain(DomainException ex) {
+        return ResponseEntity.status(ex.getStatus()).body(ex.getBody());
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, String>> handleRuntime(RuntimeException ex) {
         return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
@@ -0,0 +1,21 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+// 404: запрошенная сущность не существует
+public class NotFoundException extends DomainException {
+
+    public static final NotFoundException USER = new NotFoundException("User not found");
+    public static final NotFoundException CARD = new NotFoundException("Card not found");
+    public static final NotFoundException SOURCE_CARD = new NotFoundException("Source card not found");
+    public static final NotFoundException TARGET_CARD = new NotFoundException("Target card not found");
+
+    public NotFoundException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.NOT_FOUND;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+// 401: учётные данные отсутствуют, неверны или отозваны
+public class UnauthorizedException extends DomainException {
+
+    public static final UnauthorizedException INVALID_REFRESH_TOKEN =
+            new UnauthorizedException("Invalid refresh token");
+
+    public UnauthorizedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.UNAUTHORIZED;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.AuditEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+// Аудит пишется напрямую через JDBC: один многострочный INSERT на пачку событий
+@Repository
+public class AuditEventRepository {
+
+    private static final String INSERT = "insert into audit_events " +
+            "(action, card_id, target_card_id, amount, actor, created_at) values ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 6;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AuditEventRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public int insertAll(List<AuditEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder(INSERT.length() + events.size() * (ROW.length() + 2)).append(INSERT);
+        Object[] args = new Object[events.size() * COLUMNS];
+        int i = 0;
+        for (AuditEvent event : events) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW);
+            args[i++] = event.action().name();
+            args[i++] = event.cardId();
+            args[i++] = event.targetCardId();
+            args[i++] = event.amount();
+            args[i++] = event.actor();
+            args[i++] = Timestamp.from(event.createdAt());
+        }
+        return jdbcTemplate.update(sql.toString(), args);
+    }
+}
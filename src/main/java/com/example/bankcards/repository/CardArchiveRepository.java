@@ -0,0 +1,108 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.ArchivedCardResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardArchiveReason;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.util.CardNumberEncryptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Холодное хранилище карт (cards_archive). Строка копируется из cards одним
+ * INSERT ... SELECT: номер переносится зашифрованным, без загрузки сущностей.
+ * Запросы к cards архив не затрагивают.
+ */
+@Repository
+public class CardArchiveRepository {
+
+    // Кандидат в архив: всё, что нужно для статистики и outbox
+    public record ExpiredCard(Long id, Long ownerId, CardStatus status, BigDecimal balance, LocalDate expirationDate) {
+    }
+
+    private static final CardNumberEncryptor ENCRYPTOR = new CardNumberEncryptor();
+
+    private static final String COLUMNS = "id, card_number, owner_id, expiration_date, status, balance, " +
+            "reason, archived_at";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public CardArchiveRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Следующая порция карт, истёкших раньше expiredBefore. Строки блокируются до конца
+     * транзакции порции; заблокированные другим экземпляром пропускаются, поэтому
+     * задачу можно запускать на нескольких экземплярах одновременно.
+     */
+    public List<ExpiredCard> lockExpired(LocalDate expiredBefore, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("before", Date.valueOf(expiredBefore))
+                .addValue("limit", limit);
+        return jdbcTemplate.query("select id, owner_id, status, balance, expiration_date from cards " +
+                        "where expiration_date < :before order by expiration_date, id limit :limit " +
+                        "for update skip locked", params,
+                (rs, rowNum) -> new ExpiredCard(rs.getLong("id"), rs.getLong("owner_id"),
+                        CardStatus.valueOf(rs.getString("status")), rs.getBigDecimal("balance"),
+                        rs.getDate("expiration_date").toLocalDate()));
+    }
+
+    // Копирует карты в архив; удаление из cards — забота вызывающего, в той же транзакции
+    public int copy(List<Long> ids, CardArchiveReason reason) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("reason", reason.name())
+                .addValue("now", Timestamp.from(Instant.now()));
+        return jdbcTemplate.update("insert into cards_archive (" + COLUMNS + ") " +
+                "select id, card_number, owner_id, expiration_date, status, balance, :reason, :now " +
+                "from cards where id in (:ids)", params);
+    }
+
+    public Optional<ArchivedCardResponse> findById(Long id) {
+        return jdbcTemplate.query("select " + COLUMNS + " from cards_archive where id = :id",
+                new MapSqlParameterSource("id", id), ROW_MAPPER).stream().findFirst();
+    }
+
+    // Страница по возрастанию id; лишняя строка запрашивается, чтобы узнать, есть ли следующая
+    public Slice<ArchivedCardResponse> findByOwnerId(Long ownerId, Pageable pageable) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ownerId", ownerId)
+                .addValue("limit", pageable.getPageSize() + 1)
+                .addValue("offset", pageable.getOffset());
+        List<ArchivedCardResponse> rows = jdbcTemplate.query("select " + COLUMNS + " from cards_archive " +
+                "where owner_id = :ownerId order by id limit :limit offset :offset", params, ROW_MAPPER);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    private static final RowMapper<ArchivedCardResponse> ROW_MAPPER = (rs, rowNum) -> {
+        // маскирование как у Card: номер расшифровывается только для последних цифр
+        Card card = new Card();
+        card.setCardNumber(ENCRYPTOR.convertToEntityAttribute(rs.getString("card_number")));
+        ArchivedCardResponse response = new ArchivedCardResponse();
+        response.setId(rs.getLong("id"));
+        response.setOwnerId(rs.getLong("owner_id"));
+        response.setMaskedCardNumber(card.getMaskedCardNumber());
+        response.setExpirationDate(rs.getDate("expiration_date").toLocalDate());
+        response.setStatus(CardStatus.valueOf(rs.getString("status")));
+        response.setBalance(rs.getBigDecimal("balance"));
+        response.setReason(CardArchiveReason.valueOf(rs.getString("reason")));
+        response.setArchivedAt(rs.getTimestamp("archived_at").toInstant());
+        return response;
+    };
+}
@@ -0,0 +1,75 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.BulkStatusRequest;
+import com.example.bankcards.entity.CardStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * Выборка карт для массовой смены статуса по фильтру из BulkStatusRequest.
+ * Читаются только нужные столбцы, без загрузки сущностей и расшифровки номеров.
+ * Карты, уже имеющие целевой статус, не выбираются.
+ */
+@Repository
+public class CardBulkRepository {
+
+    public record CardStatusRow(Long id, Long ownerId, CardStatus status, BigDecimal balance) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public CardBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public long count(BulkStatusRequest filter) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String where = where(filter, params);
+        Long count = jdbcTemplate.queryForObject("select count(*) from cards where " + where, params, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    // Следующая порция по возрастанию id; строки блокируются до конца транзакции порции
+    public List<CardStatusRow> lockChunk(BulkStatusRequest filter, long afterId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+        String where = where(filter, params);
+        return jdbcTemplate.query("select id, owner_id, status, balance from cards where " + where +
+                        " and id > :afterId order by id limit :limit for update", params,
+                (rs, rowNum) -> new CardStatusRow(rs.getLong("id"), rs.getLong("owner_id"),
+                        CardStatus.valueOf(rs.getString("status")), rs.getBigDecimal("balance")));
+    }
+
+    private static String where(BulkStatusRequest filter, MapSqlParameterSource params) {
+        StringBuilder where = new StringBuilder("status <> :target");
+        params.addValue("target", filter.getStatus().name());
+        if (filter.getCardIds() != null && !filter.getCardIds().isEmpty()) {
+            where.append(" and id in (:ids)");
+            params.addValue("ids", filter.getCardIds());
+        }
+        if (filter.getOwnerId() != null) {
+            where.append(" and owner_id = :ownerId");
+            params.addValue("ownerId", filter.getOwnerId());
+        }
+        if (filter.getExpiresFrom() != null) {
+            where.append(" and expiration_date >= :expiresFrom");
+            params.addValue("expiresFrom", Date.valueOf(filter.getExpiresFrom()));
+        }
+        if (filter.getExpiresTo() != null) {
+            where.append(" and expiration_date <= :expiresTo");
+            params.addValue("expiresTo", Date.valueOf(filter.getExpiresTo()));
+        }
+        if (filter.getCurrentStatus() != null) {
+            where.append(" and status = :currentStatus");
+            params.addValue("currentStatus", filter.getCurrentStatus().name());
+        }
+        return where.toString();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.bankcards.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Лимиты трат по картам и почасовые суммы списаний, из которых после рестарта
+ * восстанавливаются счётчики в памяти. Суммы хранятся в копейках (BIGINT),
+ * часы — номером часа от начала эпохи UTC.
+ */
+@Repository
+public class CardLimitRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CardLimitRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Лимит null — ограничения нет
+    public record Limit(long cardId, BigDecimal dailyLimit, BigDecimal monthlyLimit) {
+    }
+
+    public record Spending(long cardId, long hour, long amount) {
+    }
+
+    public List<Limit> findAllLimits() {
+        return jdbcTemplate.query("select card_id, daily_limit, monthly_limit from card_limits",
+                (rs, i) -> new Limit(rs.getLong("card_id"),
+                        rs.getBigDecimal("daily_limit"), rs.getBigDecimal("monthly_limit")));
+    }
+
+    public Optional<Limit> findLimit(long cardId) {
+        return jdbcTemplate.query("select card_id, daily_limit, monthly_limit from card_limits where card_id = ?",
+                (rs, i) -> new Limit(rs.getLong("card_id"),
+                        rs.getBigDecimal("daily_limit"), rs.getBigDecimal("monthly_limit")), cardId)
+                .stream().findFirst();
+    }
+
+    @Transactional
+    public void saveLimit(long cardId, BigDecimal dailyLimit, BigDecimal monthlyLimit) {
+        int updated = jdbcTemplate.update("update card_limits set daily_limit = ?, monthly_limit = ? where card_id = ?",
+                dailyLimit, monthlyLimit, cardId);
+        if (updated == 0) {
+            jdbcTemplate.update("insert into card_limits (card_id, daily_limit, monthly_limit) values (?, ?, ?)",
+                    cardId, dailyLimit, monthlyLimit);
+        }
+    }
+
+    public void deleteLimit(long cardId) {
+        jdbcTemplate.update("delete from card_limits where card_id = ?", cardId);
+    }
+
+    // Списания карт с лимитами начиная с часа fromHour
+    public List<Spending> findLimitedSpendingSince(long fromHour) {
+        return jdbcTemplate.query("select s.card_id, s.bucket_hour, s.amount from card_spending s " +
+                        "join card_limits l on l.card_id = s.card_id where s.bucket_hour >= ?",
+                (rs, i) -> new Spending(rs.getLong("card_id"), rs.getLong("bucket_hour"), rs.getLong("amount")),
+                fromHour);
+    }
+
+    public List<Spending> findSpendingSince(long cardId, long fromHour) {
+        return jdbcTemplate.query("select card_id, bucket_hour, amount from card_spending " +
+                        "where card_id = ? and bucket_hour >= ?",
+                (rs, i) -> new Spending(rs.getLong("card_id"), rs.getLong("bucket_hour"), rs.getLong("amount")),
+                cardId, fromHour);
+    }
+
+    /**
+     * Прибавляет накопленные суммы одной транзакцией: пачкой update, затем пачкой insert
+     * для отсутствующих строк. Если строку параллельно вставил другой экземпляр или
+     * карта удалена, транзакция откатывается, и вызывающий повторяет строки по одной.
+     */
+    @Transactional
+    public void addSpending(List<Spending> rows) {
+        int[] updated = jdbcTemplate.batchUpdate(
+                "update card_spending set amount = amount + ? where card_id = ? and bucket_hour = ?",
+                rows, rows.size(), (ps, row) -> {
+                    ps.setLong(1, row.amount());
+                    ps.setLong(2, row.cardId());
+                    ps.setLong(3, row.hour());
+                })[0];
+        List<Spending> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(rows.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into card_spending (card_id, bucket_hour, amount) values (?, ?, ?)",
+                    missing, missing.size(), (ps, row) -> {
+                        ps.setLong(1, row.cardId());
+                        ps.setLong(2, row.hour());
+                        ps.setLong(3, row.amount());
+                    });
+        }
+    }
+
+    public int deleteSpendingBefore(long hour) {
+        return jdbcTemplate.update("delete from card_spending where bucket_hour < ?", hour);
+    }
+}
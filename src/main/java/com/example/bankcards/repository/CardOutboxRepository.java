@@ -0,0 +1,27 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CardOutboxRepository extends JpaRepository<CardOutboxEvent, Long>, CardOutboxRepositoryCustom {
+    List<CardOutboxEvent> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<CardOutboxEvent> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    @Query("select coalesce(max(e.id), 0) from CardOutboxEvent e")
+    Long findMaxId();
+
+    @Modifying
+    @Query("delete from CardOutboxEvent e where e.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardOutboxEvent;
+
+import java.util.List;
+
+public interface CardOutboxRepositoryCustom {
+    // Пакетная вставка событий массовых операций (IDENTITY не даёт Hibernate батчить save)
+    void insertBatch(List<CardOutboxEvent> events);
+}
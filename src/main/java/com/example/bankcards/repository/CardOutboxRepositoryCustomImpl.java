@@ -0,0 +1,29 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardOutboxEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public class CardOutboxRepositoryCustomImpl implements CardOutboxRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CardOutboxRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertBatch(List<CardOutboxEvent> events) {
+        jdbcTemplate.batchUpdate("insert into card_outbox (owner_id, card_id, event_type, payload, created_at) " +
+                        "values (?, ?, ?, ?, ?)", events, 500,
+                (ps, event) -> {
+                    ps.setLong(1, event.getOwnerId());
+                    ps.setLong(2, event.getCardId());
+                    ps.setString(3, event.getEventType().name());
+                    ps.setString(4, event.getPayload());
+                    ps.setTimestamp(5, Timestamp.from(event.getCreatedAt()));
+                });
+    }
+}
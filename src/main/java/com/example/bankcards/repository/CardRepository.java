@@ -1,13 +1,69 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.config.AllShards;
+import com.example.bankcards.dto.CardVersion;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CardRepository extends JpaRepository<Card, Long> {
+    // Результат кэшируется в регионе запросов и сбрасывается при любом изменении таблицы cards
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "cards-by-owner")
+    })
     List<Card> findByOwner(User owner);
+
+    long countByOwnerId(Long ownerId);
+
+    // Список карт администратора: владелец в том же запросе, при шардировании — со всех шардов
+    @AllShards
+    @Override
+    @Query("select c from Card c join fetch c.owner order by c.id")
+    List<Card> findAll();
+
+    // --- версии для ETag: читаются только id и version, без сущностей ---
+
+    @AllShards
+    @Query("select new com.example.bankcards.dto.CardVersion(c.id, c.version) from Card c order by c.id")
+    List<CardVersion> findAllVersions();
+
+    @Query("select new com.example.bankcards.dto.CardVersion(c.id, c.version) from Card c " +
+            "where c.owner.id = :ownerId order by c.id")
+    List<CardVersion> findVersionsByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query("select c.version from Card c where c.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("select c.version from Card c where c.id = :id and c.owner.id = :ownerId")
+    Optional<Long> findVersionByIdAndOwnerId(@Param("id") Long id, @Param("ownerId") Long ownerId);
+
+    @Query("select c.id from Card c where c.owner.id = :ownerId order by c.id")
+    List<Long> findIdsByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    // Массовое удаление без загрузки сущностей (и расшифровки номеров);
+    // Hibernate сбрасывает регионы кэша cards после bulk-операции
+    @Modifying
+    @Query("delete from Card c where c.id in :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Query("update Card c set c.status = :status, c.version = c.version + 1 where c.id in :ids")
+    int updateStatusByIds(@Param("ids") List<Long> ids, @Param("status") CardStatus status);
+
+    @Modifying
+    @Query("delete from Card c where c.owner.id = :ownerId")
+    int deleteByOwnerId(@Param("ownerId") Long ownerId);
 }
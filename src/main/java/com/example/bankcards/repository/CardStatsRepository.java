@@ -0,0 +1,153 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardStatus;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Счётчики статистики по картам. Счётчики статусов и сроков действия разбиты на слоты,
+ * чтобы параллельные транзакции не упирались в одну строку; при чтении слоты суммируются.
+ * Все изменения — относительные (count = count + delta), поэтому коммутируют между собой.
+ */
+@Repository
+public class CardStatsRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    // Тип БД определяется при первом обновлении
+    private volatile Boolean postgres;
+
+    public CardStatsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    // Счётчик меняется одним upsert в транзакции вызывающего: вставка строки видит его
+    // незакоммиченные данные (например, только что созданного пользователя), а гонка
+    // параллельных вставок разрешается самой БД
+
+    public int addToStatus(CardStatus status, int slot, long countDelta, BigDecimal balanceDelta) {
+        return upsert("card_status_stats", "status, slot", "card_count, total_balance",
+                status.name(), slot, countDelta, balanceDelta);
+    }
+
+    public int addToExpiry(LocalDate month, int slot, long countDelta) {
+        return upsert("card_expiry_stats", "expiry_month, slot", "card_count",
+                Date.valueOf(month), slot, countDelta);
+    }
+
+    public int addToUser(Long userId, long countDelta, BigDecimal balanceDelta) {
+        return upsert("user_card_stats", "user_id", "card_count, total_balance",
+                userId, countDelta, balanceDelta);
+    }
+
+    /**
+     * Прибавляет значения к столбцам-счётчикам строки с ключом keys, создавая её при отсутствии.
+     * PostgreSQL: insert ... on conflict do update. H2 (тесты) on conflict do update не
+     * поддерживает, там то же делает MERGE.
+     */
+    private int upsert(String table, String keys, String counters, Object... values) {
+        String[] keyColumns = keys.split(", ");
+        String[] counterColumns = counters.split(", ");
+        String columns = keys + ", " + counters;
+        String placeholders = String.join(", ", Collections.nCopies(values.length, "?"));
+        String sql;
+        if (isPostgres()) {
+            String set = Arrays.stream(counterColumns)
+                    .map(column -> column + " = " + table + "." + column + " + excluded." + column)
+                    .collect(Collectors.joining(", "));
+            sql = "insert into " + table + " (" + columns + ") values (" + placeholders + ") " +
+                    "on conflict (" + keys + ") do update set " + set;
+        } else {
+            String on = Arrays.stream(keyColumns).map(column -> "t." + column + " = s." + column)
+                    .collect(Collectors.joining(" and "));
+            String set = Arrays.stream(counterColumns).map(column -> column + " = t." + column + " + s." + column)
+                    .collect(Collectors.joining(", "));
+            sql = "merge into " + table + " t using (values (" + placeholders + ")) s (" + columns + ") " +
+                    "on " + on + " when matched then update set " + set +
+                    " when not matched then insert (" + columns + ") values (s." +
+                    String.join(", s.", columns.split(", ")) + ")";
+        }
+        return jdbcTemplate.update(sql, values);
+    }
+
+    private boolean isPostgres() {
+        Boolean postgres = this.postgres;
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+            this.postgres = postgres;
+        }
+        return Boolean.TRUE.equals(postgres);
+    }
+
+    public List<Map<String, Object>> findStatusTotals() {
+        return jdbcTemplate.queryForList("select status, sum(card_count) as card_count, " +
+                "sum(total_balance) as total_balance from card_status_stats group by status");
+    }
+
+    public Map<LocalDate, Long> findExpiryCounts(LocalDate fromMonth, LocalDate toMonth) {
+        Map<LocalDate, Long> counts = new HashMap<>();
+        jdbcTemplate.query("select expiry_month, sum(card_count) as card_count from card_expiry_stats " +
+                        "where expiry_month between ? and ? group by expiry_month",
+                rs -> {
+                    counts.put(rs.getDate("expiry_month").toLocalDate(), rs.getLong("card_count"));
+                }, Date.valueOf(fromMonth), Date.valueOf(toMonth));
+        return counts;
+    }
+
+    public List<Map<String, Object>> findUserStats(Long userId) {
+        return jdbcTemplate.queryForList("select card_count, total_balance from user_card_stats where user_id = ?",
+                userId);
+    }
+
+    // --- полные агрегаты для сверки ---
+
+    public List<Map<String, Object>> aggregateByStatus() {
+        return jdbcTemplate.queryForList("select status, count(*) as card_count, " +
+                "coalesce(sum(balance), 0) as total_balance from cards group by status");
+    }
+
+    public List<Map<String, Object>> aggregateByExpirationDate() {
+        return jdbcTemplate.queryForList("select expiration_date, count(*) as card_count " +
+                "from cards group by expiration_date");
+    }
+
+    public List<Map<String, Object>> aggregateByOwner() {
+        return jdbcTemplate.queryForList("select owner_id, count(*) as card_count, " +
+                "coalesce(sum(balance), 0) as total_balance from cards group by owner_id");
+    }
+
+    public List<Map<String, Object>> aggregateOwnerCards(Long ownerId) {
+        return jdbcTemplate.queryForList("select status, expiration_date, count(*) as card_count, " +
+                "coalesce(sum(balance), 0) as total_balance from cards where owner_id = ? " +
+                "group by status, expiration_date", ownerId);
+    }
+
+    public List<Map<String, Object>> aggregateCards(List<Long> cardIds) {
+        return namedJdbcTemplate.queryForList("select status, expiration_date, count(*) as card_count, " +
+                "coalesce(sum(balance), 0) as total_balance from cards where id in (:ids) " +
+                "group by status, expiration_date", Map.of("ids", cardIds));
+    }
+
+    public List<Map<String, Object>> findAllExpiry() {
+        return jdbcTemplate.queryForList("select expiry_month, sum(card_count) as card_count " +
+                "from card_expiry_stats group by expiry_month");
+    }
+
+    public List<Map<String, Object>> findAllUserStats() {
+        return jdbcTemplate.queryForList("select user_id, card_count, total_balance from user_card_stats");
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.config.AllShards;
+import com.example.bankcards.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    // id отозванных сессий, по которым ещё могут жить access-токены
+    @AllShards
+    @Query("select t.id from RefreshToken t where t.revoked = true and t.revokedAt > :since")
+    List<Long> findRevokedIdsSince(@Param("since") Instant since);
+
+    // Смена хэша, только если сессию не отозвали и токен не сменили параллельно; 0 — токен уже предъявлялся
+    @Modifying
+    @Query("update RefreshToken t set t.tokenHash = :newHash " +
+            "where t.id = :id and t.tokenHash = :oldHash and t.revoked = false")
+    int rotate(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true, t.revokedAt = :now where t.id = :id and t.revoked = false")
+    int revokeById(@Param("id") Long id, @Param("now") Instant now);
+
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true, t.revokedAt = :now " +
+            "where t.user.id = :userId and t.revoked = false")
+    int revokeAllByUserId(@Param("userId") Long userId, @Param("now") Instant now);
+
+    @AllShards
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt < :before")
+    int deleteExpiredBefore(@Param("before") Instant before);
+}
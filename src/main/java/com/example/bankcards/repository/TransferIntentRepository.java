@@ -0,0 +1,66 @@
+package com.example.bankcards.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Журнал переводов между шардами (transfer_intents). Списание пишет строку DEBIT
+ * на шарде отправителя, зачисление — строку CREDIT с тем же id на шарде получателя;
+ * первичный ключ делает повторное зачисление пустой операцией.
+ */
+@Repository
+public class TransferIntentRepository {
+
+    public static final String DEBIT = "DEBIT";
+    public static final String CREDIT = "CREDIT";
+
+    public static final String PREPARED = "PREPARED";
+    public static final String COMMITTED = "COMMITTED";
+    public static final String ABORTED = "ABORTED";
+    public static final String APPLIED = "APPLIED";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TransferIntentRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // createdAt — время списания: по нему отмена возвращает резерв лимита в ту же корзину
+    public record Intent(String id, long fromCardId, long toCardId, BigDecimal amount, Instant createdAt) {
+    }
+
+    /**
+     * @return 0, если запись с этим id уже есть
+     */
+    public int insert(Intent intent, String role, String state) {
+        return jdbcTemplate.update("insert into transfer_intents " +
+                        "(id, from_card_id, to_card_id, amount, role, state, created_at) values (?, ?, ?, ?, ?, ?, ?) " +
+                        "on conflict do nothing",
+                intent.id(), intent.fromCardId(), intent.toCardId(), intent.amount(), role, state,
+                Timestamp.from(intent.createdAt()));
+    }
+
+    // Переход состояния только из ожидаемого: конкурирующее восстановление получит 0
+    public int updateState(String id, String expected, String state) {
+        return jdbcTemplate.update("update transfer_intents set state = ? where id = ? and state = ?",
+                state, id, expected);
+    }
+
+    public List<Intent> findStale(String role, String state, Instant before, int limit) {
+        return jdbcTemplate.query("select id, from_card_id, to_card_id, amount, created_at from transfer_intents " +
+                        "where role = ? and state = ? and created_at < ? order by created_at limit ?",
+                (rs, i) -> new Intent(rs.getString("id"), rs.getLong("from_card_id"),
+                        rs.getLong("to_card_id"), rs.getBigDecimal("amount"), rs.getTimestamp("created_at").toInstant()),
+                role, state, Timestamp.from(before), limit);
+    }
+
+    public String findState(String id) {
+        return jdbcTemplate.query("select state from transfer_intents where id = ?",
+                (rs, i) -> rs.getString(1), id).stream().findFirst().orElse(null);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Role;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Вставка пользователей в обход JPA: пачкой JDBC-запросов, а повторы username
+ * отсекает сама БД по уникальному ограничению (on conflict do nothing),
+ * без предварительной проверки и без исключений на каждый дубликат.
+ */
+@Repository
+public class UserBulkRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public UserBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    // password — уже готовый хэш
+    public record NewUser(String username, String password, Role role) {
+    }
+
+    public Set<String> findExistingUsernames(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(namedJdbcTemplate.queryForList(
+                "select username from users where username in (:usernames)",
+                Map.of("usernames", usernames), String.class));
+    }
+
+    /**
+     * @return для каждого пользователя число вставленных строк: 0 — username уже занят
+     */
+    public int[] insertIgnoringDuplicates(List<NewUser> users) {
+        if (users.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate("insert into users (username, password, role, version) values (?, ?, ?, 0) " +
+                        "on conflict do nothing",
+                users, users.size(), (ps, user) -> {
+                    ps.setString(1, user.username());
+                    ps.setString(2, user.password());
+                    ps.setString(3, user.role().name());
+                })[0];
+    }
+}
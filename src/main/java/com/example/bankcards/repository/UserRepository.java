@@ -1,13 +1,41 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.config.AllShards;
+import com.example.bankcards.dto.UserSummary;
 import com.example.bankcards.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     Optional<User> findByUsername(String username);
-}
 
+    // Список пользователей администратора вместе с картами, при шардировании — со всех шардов
+    @AllShards
+    @Override
+    @Query("select distinct u from User u left join fetch u.cards order by u.id")
+    List<User> findAll();
+
+    // pattern — уже экранированный шаблон LIKE по lower(username); индексы:
+    // text_pattern_ops для 'abc%' и pg_trgm для '%abc%' (changeSet 7).
+    // Сортировка по id: для частого шаблона планировщик идёт по первичному ключу и
+    // останавливается на LIMIT, для редкого — берёт совпадения из индекса и сортирует их.
+    // Slice не выполняет count(*), который на миллионах строк дороже самого поиска
+    @AllShards
+    @Query("select new com.example.bankcards.dto.UserSummary(u.id, u.username, u.role) from User u " +
+            "where lower(u.username) like :pattern escape '\\' order by u.id")
+    Slice<UserSummary> searchByUsername(@Param("pattern") String pattern, Pageable pageable);
+
+    // Удаление без каскада по User.cards: карты к этому моменту удалены отдельным запросом
+    @Modifying
+    @Query("delete from User u where u.id = :id")
+    int deleteByIdDirect(@Param("id") Long id);
+}
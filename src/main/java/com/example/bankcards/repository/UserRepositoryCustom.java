@@ -0,0 +1,10 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.User;
+
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+    // Поиск по натуральному ключу через кэш второго уровня
+    Optional<User> findByUsername(String username);
+}
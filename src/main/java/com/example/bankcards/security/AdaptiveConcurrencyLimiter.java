@@ -0,0 +1,145 @@
+package com.example.bankcards.security;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Адаптивный лимит одновременно обрабатываемых запросов (градиентный алгоритм, как Gradient2).
+ * Задержки завершённых запросов копятся за окно; по итогам окна средняя задержка окна
+ * сравнивается с долгой экспоненциальной средней: если запросы стали ждать дольше
+ * (очередь за пулом соединений, блокировками БД), лимит уменьшается пропорционально,
+ * иначе растёт на √limit. Захват и освобождение — CAS и LongAdder без блокировок;
+ * пересчёт выполняет один поток, выигравший CAS конца окна.
+ * Приоритет запроса задаёт долю лимита, которую он может занять: при перегрузке
+ * низкоприоритетные запросы отсекаются первыми, оставляя запас важным.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    public enum Priority {
+        CRITICAL, NORMAL, LOW
+    }
+
+    private final double[] shares;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowNanos;
+    private final int minWindowSamples;
+    private final double longRttFactor;
+    private final double rttTolerance;
+    private final double smoothing;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    // Пик одновременных запросов за окно: недогруженное приложение лимит не наращивает
+    private final AtomicInteger peakInflight = new AtomicInteger();
+    private final LongAdder rttSum = new LongAdder();
+    private final LongAdder rttCount = new LongAdder();
+    private final AtomicLong windowEnd;
+
+    private volatile double limit;
+    private volatile double longRtt;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      long windowNanos, int minWindowSamples, int longWindow,
+                                      double rttTolerance, double smoothing, double[] shares) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        if (rttTolerance < 1 || smoothing <= 0 || smoothing > 1 || longWindow < 1) {
+            throw new IllegalArgumentException("Invalid limiter tuning");
+        }
+        if (shares.length != Priority.values().length) {
+            throw new IllegalArgumentException("A share is required for every priority");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowNanos = windowNanos;
+        this.minWindowSamples = minWindowSamples;
+        this.longRttFactor = 2.0 / (longWindow + 1);
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.shares = shares.clone();
+        this.windowEnd = new AtomicLong(System.nanoTime() + windowNanos);
+    }
+
+    /**
+     * Занимает место под запрос.
+     *
+     * @return false, если запрос этого приоритета не помещается в свою долю лимита
+     */
+    public boolean tryAcquire(Priority priority) {
+        int allowed = Math.max(1, (int) (limit * shares[priority.ordinal()]));
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                peakInflight.accumulateAndGet(current + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    // Запрос завершился штатно: его задержка участвует в пересчёте лимита
+    public void release(long rttNanos, long nowNanos) {
+        inflight.decrementAndGet();
+        rttSum.add(rttNanos);
+        rttCount.increment();
+        long end = windowEnd.get();
+        if (nowNanos >= end && windowEnd.compareAndSet(end, nowNanos + windowNanos)) {
+            updateLimit();
+        }
+    }
+
+    // Запрос упал с ошибкой: быстрый отказ исказил бы оценку задержки
+    public void releaseWithoutSample() {
+        inflight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    private void updateLimit() {
+        long count = rttCount.sumThenReset();
+        long sum = rttSum.sumThenReset();
+        if (count < minWindowSamples) {
+            // Мало замеров для оценки: окно продлевается
+            rttSum.add(sum);
+            rttCount.add(count);
+            return;
+        }
+        int peak = peakInflight.getAndSet(inflight.get());
+        double shortRtt = (double) sum / count;
+        double currentLimit = limit;
+        boolean appLimited = peak < currentLimit / 2;
+        double currentLongRtt = longRtt;
+        // Задержка из-за собственной очереди в долгую среднюю не попадает, иначе при затяжной
+        // перегрузке средняя доползла бы до неё и лимит перестал снижаться. Без нагрузки
+        // или на минимальном лимите задержка считается новой нормой
+        if (currentLongRtt == 0) {
+            currentLongRtt = shortRtt;
+        } else if (appLimited || shortRtt <= rttTolerance * currentLongRtt || currentLimit <= minLimit) {
+            currentLongRtt = currentLongRtt * (1 - longRttFactor) + shortRtt * longRttFactor;
+        }
+        // Нагрузка спала и задержка намного ниже долгой средней: средняя догоняет быстрее
+        if (currentLongRtt / shortRtt > 2) {
+            currentLongRtt *= 0.95;
+        }
+        longRtt = currentLongRtt;
+
+        if (appLimited) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * currentLongRtt / shortRtt));
+        double target = currentLimit * gradient + Math.sqrt(currentLimit);
+        double smoothed = currentLimit * (1 - smoothing) + target * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+}
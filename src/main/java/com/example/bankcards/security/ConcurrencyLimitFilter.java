@@ -0,0 +1,121 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.ConcurrencyLimitProperties;
+import com.example.bankcards.security.AdaptiveConcurrencyLimiter.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сброс нагрузки: запросы сверх адаптивного лимита получают 503 сразу, не занимая
+ * поток Tomcat на время ожидания БД и не доходя до сервисов.
+ * Стоит первым фильтром контейнера, до цепочки Spring Security: отказ не тратит
+ * время даже на разбор JWT. Приоритет запроса определяется первым подходящим
+ * маршрутом из concurrency-limit.routes.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final boolean enabled;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Priority defaultPriority;
+    private final List<String> exclude;
+    private final List<ConcurrencyLimitProperties.Route> routes;
+    private final Map<Priority, Counter> rejected = new EnumMap<>(Priority.class);
+
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        double[] shares = new double[Priority.values().length];
+        for (Priority priority : Priority.values()) {
+            shares[priority.ordinal()] = properties.getShares().getOrDefault(priority, 1.0);
+        }
+        this.limiter = new AdaptiveConcurrencyLimiter(properties.getInitialLimit(), properties.getMinLimit(),
+                properties.getMaxLimit(), TimeUnit.MILLISECONDS.toNanos(properties.getWindowMs()),
+                properties.getMinWindowSamples(), properties.getLongWindow(), properties.getRttTolerance(),
+                properties.getSmoothing(), shares);
+        this.defaultPriority = properties.getDefaultPriority();
+        this.exclude = List.copyOf(properties.getExclude());
+        this.routes = List.copyOf(properties.getRoutes());
+
+        Gauge.builder("app.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("app.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInflight)
+                .description("Requests currently admitted by the concurrency limiter")
+                .register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            rejected.put(priority, Counter.builder("app.concurrency.rejected")
+                    .description("Requests shed with 503 by the concurrency limiter")
+                    .tag("priority", priority.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String path = request.getServletPath();
+        return exclude.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Priority priority = priorityOf(request);
+        if (!limiter.tryAcquire(priority)) {
+            rejected.get(priority).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Service overloaded\"}");
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, response);
+            completed = response.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value();
+        } finally {
+            if (completed) {
+                long now = System.nanoTime();
+                limiter.release(now - start, now);
+            } else {
+                limiter.releaseWithoutSample();
+            }
+        }
+    }
+
+    private Priority priorityOf(HttpServletRequest request) {
+        String path = request.getServletPath();
+        for (ConcurrencyLimitProperties.Route route : routes) {
+            if ((route.getMethod() == null || route.getMethod().equalsIgnoreCase(request.getMethod()))
+                    && pathMatcher.match(route.getPath(), path)) {
+                return route.getPriority();
+            }
+        }
+        return defaultPriority;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.bankcards.security;
 
 import com.example.bankcards.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,8 +9,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -21,11 +20,11 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
 
-    private final UserDetailsService userDetailsService;
+    private final RevokedTokenIndex revokedTokenIndex;
 
-    public JwtAuthFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JwtAuthFilter(JwtUtil jwtUtil, RevokedTokenIndex revokedTokenIndex) {
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.revokedTokenIndex = revokedTokenIndex;
     }
 
 
@@ -55,13 +54,15 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         try {
             String token = extractToken(request);
             if (token != null) {
-                String username = jwtUtil.extractUsername(token);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                // подпись и срок действия проверяются при разборе, отзыв — по индексу в памяти
+                Claims claims = jwtUtil.parseClaims(token);
+                Long sessionId = jwtUtil.extractSessionId(claims);
 
-                if (jwtUtil.validateToken(token, userDetails)) {
+                if (sessionId != null && !revokedTokenIndex.isRevoked(sessionId)) {
+                    UserDetails userDetails = jwtUtil.toUserDetails(claims);
                     UsernamePasswordAuthenticationToken auth =
                             new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                    auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    auth.setDetails(new JwtAuthenticationDetails(request, sessionId, claims.getExpiration().toInstant()));
                     SecurityContextHolder.getContext().setAuthentication(auth);
                 }
             }
@@ -0,0 +1,27 @@
+package com.example.bankcards.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+import java.time.Instant;
+
+// sid сессии (не HTTP-сессии) и срок действия access-токена: долгие ответы (SSE) не должны их пережить
+public class JwtAuthenticationDetails extends WebAuthenticationDetails {
+
+    private final Long tokenSessionId;
+    private final Instant expiresAt;
+
+    public JwtAuthenticationDetails(HttpServletRequest request, Long tokenSessionId, Instant expiresAt) {
+        super(request);
+        this.tokenSessionId = tokenSessionId;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getTokenSessionId() {
+        return tokenSessionId;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.RateLimitProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничение частоты запросов к чувствительным маршрутам.
+ * Стоит в цепочке сразу после JwtAuthFilter: запрос должен уложиться и в лимит
+ * своего IP, и (если он аутентифицирован) в лимит пользователя.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final boolean enabled;
+    private final long idleEvictionNanos;
+    private final Map<String, RouteBuckets> routes = new HashMap<>();
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public RateLimitFilter(RateLimitProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    // Тесты подставляют свои часы
+    RateLimitFilter(RateLimitProperties properties, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.enabled = properties.isEnabled();
+        this.idleEvictionNanos = TimeUnit.MILLISECONDS.toNanos(properties.getIdleEvictionMs());
+        for (RateLimitProperties.Route route : properties.getRoutes()) {
+            routes.put(route.getPath(), new RouteBuckets(
+                    new TokenBucketRegistry(route.getCapacity(), route.getRefillPerSecond()),
+                    new TokenBucketRegistry(route.getCapacity(), route.getRefillPerSecond())));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !routes.containsKey(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RouteBuckets buckets = routes.get(request.getServletPath());
+        long now = nanoClock.getAsLong();
+
+        long wait = buckets.byIp().tryAcquire(request.getRemoteAddr(), now);
+        if (wait == 0) {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+                wait = buckets.byPrincipal().tryAcquire(auth.getName(), now);
+            }
+        }
+
+        if (wait > 0) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999L));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Too many requests\"}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = nanoClock.getAsLong();
+        for (RouteBuckets buckets : routes.values()) {
+            buckets.byPrincipal().evictIdle(now, idleEvictionNanos);
+            buckets.byIp().evictIdle(now, idleEvictionNanos);
+        }
+    }
+
+    // Число бакетов всех маршрутов
+    int size() {
+        int size = 0;
+        for (RouteBuckets buckets : routes.values()) {
+            size += buckets.byPrincipal().size() + buckets.byIp().size();
+        }
+        return size;
+    }
+
+    private record RouteBuckets(TokenBucketRegistry byPrincipal, TokenBucketRegistry byIp) {
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.RefreshTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс отозванных сессий для проверки access-токенов без обращения к БД.
+ * Фильтр Блума отсекает подавляющее большинство запросов, точное множество
+ * подтверждает попадание. Снимок неизменяемый и периодически перестраивается из БД.
+ */
+@Component
+public class RevokedTokenIndex {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long accessExpirationMs;
+
+    // Локально отозванные сессии (id -> время отзыва) переживают перестроение,
+    // даже если транзакция отзыва ещё не была видна запросу к БД
+    private final Map<Long, Long> localRevocations = new ConcurrentHashMap<>();
+
+    private volatile Snapshot snapshot = Snapshot.of(new long[0]);
+
+    public RevokedTokenIndex(RefreshTokenRepository refreshTokenRepository,
+                             @Value("${security.jwt.expiration:900000}") long accessExpirationMs) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.accessExpirationMs = accessExpirationMs;
+    }
+
+    public boolean isRevoked(long sessionId) {
+        return snapshot.contains(sessionId);
+    }
+
+    // Локальный отзыв: виден сразу, не дожидаясь перестроения
+    public synchronized void add(long sessionId) {
+        localRevocations.put(sessionId, System.currentTimeMillis());
+        Snapshot current = snapshot;
+        if (current.contains(sessionId)) {
+            return;
+        }
+        long[] ids = current.ids();
+        long[] extended = new long[ids.length + 1];
+        System.arraycopy(ids, 0, extended, 0, ids.length);
+        extended[ids.length] = sessionId;
+        snapshot = Snapshot.of(extended);
+    }
+
+    // Сессии, отозванные раньше срока жизни access-токена, больше не нужны в индексе
+    @Scheduled(fixedDelayString = "${security.jwt.revocation-refresh-ms:30000}")
+    public void rebuild() {
+        Instant since = Instant.now().minusMillis(accessExpirationMs);
+        List<Long> revoked = refreshTokenRepository.findRevokedIdsSince(since);
+        synchronized (this) {
+            localRevocations.values().removeIf(revokedAt -> revokedAt < since.toEpochMilli());
+            long[] ids = revoked.stream()
+                    .mapToLong(Long::longValue)
+                    .filter(id -> !localRevocations.containsKey(id))
+                    .toArray();
+            long[] merged = new long[ids.length + localRevocations.size()];
+            System.arraycopy(ids, 0, merged, 0, ids.length);
+            int i = ids.length;
+            for (Long id : localRevocations.keySet()) {
+                merged[i++] = id;
+            }
+            snapshot = Snapshot.of(merged);
+        }
+    }
+
+    public int size() {
+        return snapshot.ids().length;
+    }
+
+    static final class Snapshot {
+        private static final int HASHES = 7;
+        private static final int BITS_PER_ID = 10;
+
+        private final long[] ids;
+        private final long[] bloom;
+        private final int bloomMask;
+        private final long[] table;
+        private final int tableMask;
+
+        private Snapshot(long[] ids, long[] bloom, long[] table) {
+            this.ids = ids;
+            this.bloom = bloom;
+            this.bloomMask = bloom.length * 64 - 1;
+            this.table = table;
+            this.tableMask = table.length - 1;
+        }
+
+        static Snapshot of(long[] ids) {
+            long[] bloom = new long[(int) (powerOfTwo((long) ids.length * BITS_PER_ID) / 64)];
+            long[] table = new long[(int) powerOfTwo((long) ids.length * 2)];
+            int bloomMask = bloom.length * 64 - 1;
+            int tableMask = table.length - 1;
+            for (long id : ids) {
+                long h = mix(id);
+                int h1 = (int) h;
+                int h2 = (int) (h >>> 32);
+                for (int i = 0; i < HASHES; i++) {
+                    int bit = (h1 + i * h2) & bloomMask;
+                    bloom[bit >>> 6] |= 1L << bit;
+                }
+                // id сессий положительные, 0 — пустая ячейка
+                int slot = (int) h & tableMask;
+                while (table[slot] != 0 && table[slot] != id) {
+                    slot = (slot + 1) & tableMask;
+                }
+                table[slot] = id;
+            }
+            return new Snapshot(ids, bloom, table);
+        }
+
+        boolean contains(long id) {
+            long h = mix(id);
+            int h1 = (int) h;
+            int h2 = (int) (h >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = (h1 + i * h2) & bloomMask;
+                if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            int slot = (int) h & tableMask;
+            while (table[slot] != 0) {
+                if (table[slot] == id) {
+                    return true;
+                }
+                slot = (slot + 1) & tableMask;
+            }
+            return false;
+        }
+
+        long[] ids() {
+            return ids;
+        }
+
+        private static long powerOfTwo(long n) {
+            return n <= 64 ? 64 : Long.highestOneBit(n - 1) << 1;
+        }
+
+        // финализатор SplitMix64
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
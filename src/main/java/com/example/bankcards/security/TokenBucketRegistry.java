@@ -0,0 +1,79 @@
+package com.example.bankcards.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Набор token bucket'ов одного маршрута, по одному на ключ (пользователь или IP).
+ * Каждый бакет — один AtomicLong с теоретическим временем прибытия (алгоритм GCRA),
+ * поэтому проверка обходится одним CAS без блокировок. Бакеты разложены по
+ * нескольким картам, чтобы вытеснение простаивающих не мешало горячему пути.
+ */
+public class TokenBucketRegistry {
+
+    private static final int STRIPES = 16;
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+
+    @SuppressWarnings("unchecked")
+    private final ConcurrentHashMap<String, AtomicLong>[] stripes = new ConcurrentHashMap[STRIPES];
+
+    public TokenBucketRegistry(int capacity, double refillPerSecond) {
+        if (capacity < 1 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and refill rate must be positive");
+        }
+        this.emissionIntervalNanos = (long) (1_000_000_000L / refillPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (capacity - 1);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Пытается взять один токен.
+     *
+     * @return 0, если запрос разрешён, иначе сколько наносекунд ждать до следующего токена
+     */
+    public long tryAcquire(String key, long nowNanos) {
+        AtomicLong bucket = stripe(key).computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        while (true) {
+            long tat = bucket.get();
+            long start = Math.max(tat, nowNanos);
+            long wait = start - nowNanos - burstToleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(tat, start + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    // Удаляет бакеты, которые полностью восстановились и простаивают дольше idleNanos
+    public int evictIdle(long nowNanos, long idleNanos) {
+        int evicted = 0;
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            for (var entry : stripe.entrySet()) {
+                AtomicLong bucket = entry.getValue();
+                if (nowNanos - bucket.get() > idleNanos && stripe.remove(entry.getKey(), bucket)) {
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private ConcurrentHashMap<String, AtomicLong> stripe(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AuditProperties;
+import com.example.bankcards.dto.AuditEvent;
+import com.example.bankcards.entity.AuditAction;
+import com.example.bankcards.repository.AuditEventRepository;
+import com.example.bankcards.util.RingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронный аудит операций с картами.
+ * Потоки запросов только кладут событие в кольцевой буфер; фоновый поток
+ * пачками пишет их в audit_events. При переполнении действует настроенная политика.
+ */
+@Service
+public class AuditService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditService.class);
+
+    private final AuditEventRepository auditEventRepository;
+    private final AuditProperties properties;
+    private final RingBuffer<AuditEvent> buffer;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditService(AuditEventRepository auditEventRepository, AuditProperties properties,
+                        MeterRegistry meterRegistry) {
+        this.auditEventRepository = auditEventRepository;
+        this.properties = properties;
+        this.buffer = new RingBuffer<>(Integer.highestOneBit(Math.max(2, properties.getBufferSize() - 1)) << 1);
+        this.written = meterRegistry.counter("audit.events.written");
+        this.dropped = meterRegistry.counter("audit.events.dropped");
+        this.failed = meterRegistry.counter("audit.events.failed");
+        Gauge.builder("audit.buffer.size", buffer, RingBuffer::size).register(meterRegistry);
+    }
+
+    public void cardEvent(AuditAction action, Long cardId) {
+        publish(new AuditEvent(action, cardId, null, null, currentActor(), Instant.now()));
+    }
+
+    // Массовые операции: одно событие на карту
+    public void cardEvents(AuditAction action, List<Long> cardIds) {
+        String actor = currentActor();
+        Instant now = Instant.now();
+        List<AuditEvent> events = new ArrayList<>(cardIds.size());
+        for (Long cardId : cardIds) {
+            events.add(new AuditEvent(action, cardId, null, null, actor, now));
+        }
+        publish(events);
+    }
+
+    public void transfer(Long fromCardId, Long toCardId, BigDecimal amount) {
+        publish(new AuditEvent(AuditAction.TRANSFER, fromCardId, toCardId, amount, currentActor(), Instant.now()));
+    }
+
+    private void publish(AuditEvent event) {
+        publish(List.of(event));
+    }
+
+    // Внутри транзакции события уходят в буфер только после коммита
+    private void publish(List<AuditEvent> events) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    events.forEach(AuditService.this::enqueue);
+                }
+            });
+        } else {
+            events.forEach(this::enqueue);
+        }
+    }
+
+    private void enqueue(AuditEvent event) {
+        if (buffer.offer(event)) {
+            return;
+        }
+        switch (properties.getOverflowPolicy()) {
+            case DROP_OLDEST -> {
+                while (!buffer.offer(event)) {
+                    if (buffer.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+            }
+            case WAIT -> {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getOfferTimeoutMs());
+                while (!buffer.offer(event)) {
+                    if (System.nanoTime() > deadline) {
+                        dropped.increment();
+                        return;
+                    }
+                    LockSupport.unpark(writer);
+                    Thread.onSpinWait();
+                }
+            }
+            default -> dropped.increment();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::writeLoop, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // При остановке приложения дописываем всё, что осталось в буфере
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        while (flush() > 0) {
+            // дописываем остаток
+        }
+    }
+
+    private void writeLoop() {
+        long parkNanos = TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMs());
+        while (running) {
+            if (flush() < properties.getBatchSize()) {
+                LockSupport.parkNanos(this, parkNanos);
+            }
+        }
+    }
+
+    // Выгружает одну пачку, возвращает число выгруженных событий
+    int flush() {
+        List<AuditEvent> batch = new ArrayList<>(Math.min(properties.getBatchSize(), buffer.capacity()));
+        AuditEvent event;
+        while (batch.size() < properties.getBatchSize() && (event = buffer.poll()) != null) {
+            batch.add(event);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            auditEventRepository.insertAll(batch);
+            written.increment(batch.size());
+        } catch (RuntimeException e) {
+            failed.increment(batch.size());
+            log.error("Failed to write {} audit events", batch.size(), e);
+        }
+        return batch.size();
+    }
+
+    private static String currentActor() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null ? auth.getName() : null;
+    }
+}
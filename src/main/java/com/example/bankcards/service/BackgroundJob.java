@@ -0,0 +1,56 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.JobState;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Общее состояние фоновой задачи: id, ход выполнения и итог; хранится в JobRegistry
+public abstract class BackgroundJob {
+
+    private final UUID id = UUID.randomUUID();
+    private final Instant startedAt = Instant.now();
+    private final AtomicLong processed = new AtomicLong();
+    private volatile JobState state = JobState.PENDING;
+    private volatile String error;
+    private volatile Instant finishedAt;
+
+    public UUID getId() {
+        return id;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public void addProcessed(long count) {
+        processed.addAndGet(count);
+    }
+
+    public JobState getState() {
+        return state;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void start() {
+        state = JobState.RUNNING;
+    }
+
+    public void finish(JobState state, String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.state = state;
+    }
+}
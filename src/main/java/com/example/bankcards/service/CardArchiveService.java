@@ -0,0 +1,112 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ArchivedCardResponse;
+import com.example.bankcards.dto.ArchivedCardsResponse;
+import com.example.bankcards.entity.CardArchiveReason;
+import com.example.bankcards.exception.BusinessRuleException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.CardArchiveRepository;
+import com.example.bankcards.repository.CardArchiveRepository.ExpiredCard;
+import com.example.bankcards.repository.CardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Перенос давно истёкших карт из cards в cards_archive.
+ * Карты переносятся порциями по chunk-size, каждая порция — в своей транзакции вместе
+ * со статистикой и outbox: копия в архив и удаление из cards либо фиксируются вместе,
+ * либо не происходят. Состояния между запусками нет — прерванная задача продолжается
+ * следующим запуском с оставшихся в cards карт.
+ * При шардировании шарды обрабатываются по очереди.
+ */
+@Service
+public class CardArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(CardArchiveService.class);
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final CardArchiveRepository cardArchiveRepository;
+    private final CardRepository cardRepository;
+    private final CardStatsService cardStatsService;
+    private final CardOutboxService cardOutboxService;
+    private final ShardRouter shardRouter;
+    private final int expiredForDays;
+    private final int chunkSize;
+
+    public CardArchiveService(CardArchiveRepository cardArchiveRepository,
+                              CardRepository cardRepository,
+                              CardStatsService cardStatsService,
+                              CardOutboxService cardOutboxService,
+                              ShardRouter shardRouter,
+                              @Value("${card-archive.expired-for-days:365}") int expiredForDays,
+                              @Value("${card-archive.chunk-size:1000}") int chunkSize) {
+        this.cardArchiveRepository = cardArchiveRepository;
+        this.cardRepository = cardRepository;
+        this.cardStatsService = cardStatsService;
+        this.cardOutboxService = cardOutboxService;
+        this.shardRouter = shardRouter;
+        this.expiredForDays = expiredForDays;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return число перенесённых карт
+     */
+    @Scheduled(fixedDelayString = "${card-archive.interval-ms:3600000}",
+            initialDelayString = "${card-archive.interval-ms:3600000}")
+    public long archiveExpired() {
+        LocalDate expiredBefore = LocalDate.now().minusDays(expiredForDays);
+        long archived = 0;
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            int moved;
+            do {
+                Integer chunk = shardRouter.inShard(shard, false, () -> archiveChunk(expiredBefore));
+                moved = chunk == null ? 0 : chunk;
+                archived += moved;
+            } while (moved == chunkSize && !Thread.currentThread().isInterrupted());
+        }
+        if (archived > 0) {
+            log.info("Archived {} cards expired before {}", archived, expiredBefore);
+        }
+        return archived;
+    }
+
+    public ArchivedCardResponse getArchivedCard(Long cardId) {
+        return shardRouter.inShard(shardRouter.shardOfId(cardId), true, () -> cardArchiveRepository.findById(cardId))
+                .orElseThrow(() -> new NotFoundException("Archived card not found"));
+    }
+
+    // Архивные карты пользователя по возрастанию id, архив лежит на шарде владельца
+    public ArchivedCardsResponse getArchivedCards(Long ownerId, int page, int size) {
+        if (page < 0 || size < 1) {
+            throw BusinessRuleException.INVALID_PAGE;
+        }
+        int pageSize = Math.min(size, MAX_PAGE_SIZE);
+        Slice<ArchivedCardResponse> result = shardRouter.inShard(shardRouter.shardOfId(ownerId), true,
+                () -> cardArchiveRepository.findByOwnerId(ownerId, PageRequest.of(page, pageSize)));
+        return new ArchivedCardsResponse(result.getContent(), page, pageSize, result.hasNext());
+    }
+
+    private int archiveChunk(LocalDate expiredBefore) {
+        List<ExpiredCard> cards = cardArchiveRepository.lockExpired(expiredBefore, chunkSize);
+        if (cards.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = cards.stream().map(ExpiredCard::id).toList();
+        cardStatsService.onArchived(cards);
+        cardOutboxService.recordArchived(cards);
+        cardArchiveRepository.copy(ids, CardArchiveReason.EXPIRED);
+        // лимиты и суммы списаний карт удаляются каскадом
+        cardRepository.deleteByIds(ids);
+        return cards.size();
+    }
+}
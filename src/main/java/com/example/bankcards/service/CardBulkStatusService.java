@@ -0,0 +1,177 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkStatusRequest;
+import com.example.bankcards.dto.BulkStatusResponse;
+import com.example.bankcards.dto.JobState;
+import com.example.bankcards.entity.AuditAction;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardBulkRepository.CardStatusRow;
+import com.example.bankcards.repository.CardBulkRepository;
+import com.example.bankcards.repository.CardRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Массовая блокировка/активация карт (ADMIN).
+ * Карты выбираются порциями по chunk-size в порядке id и меняют статус одним UPDATE на порцию,
+ * каждая порция — в своей короткой транзакции вместе со статистикой, outbox и аудитом.
+ * Если под условие попадает больше async-threshold карт, работа уходит в фоновую задачу,
+ * и запрос сразу возвращает её id. При шардировании шарды обрабатываются по очереди.
+ */
+@Service
+public class CardBulkStatusService {
+
+    private static final Logger log = LoggerFactory.getLogger(CardBulkStatusService.class);
+
+    private final CardBulkRepository cardBulkRepository;
+    private final CardRepository cardRepository;
+    private final CardStatsService cardStatsService;
+    private final CardOutboxService cardOutboxService;
+    private final AuditService auditService;
+    private final ShardRouter shardRouter;
+    private final long asyncThreshold;
+    private final int chunkSize;
+    private final JobRegistry<Job> jobs;
+    private final ExecutorService executor;
+
+    public CardBulkStatusService(CardBulkRepository cardBulkRepository,
+                                 CardRepository cardRepository,
+                                 CardStatsService cardStatsService,
+                                 CardOutboxService cardOutboxService,
+                                 AuditService auditService,
+                                 ShardRouter shardRouter,
+                                 @Value("${card-bulk-status.async-threshold:5000}") long asyncThreshold,
+                                 @Value("${card-bulk-status.chunk-size:1000}") int chunkSize,
+                                 @Value("${card-bulk-status.job-retention-ms:86400000}") long retentionMs) {
+        this.cardBulkRepository = cardBulkRepository;
+        this.cardRepository = cardRepository;
+        this.cardStatsService = cardStatsService;
+        this.cardOutboxService = cardOutboxService;
+        this.auditService = auditService;
+        this.shardRouter = shardRouter;
+        this.asyncThreshold = asyncThreshold;
+        this.chunkSize = chunkSize;
+        this.jobs = new JobRegistry<>("Bulk status job not found", retentionMs);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "card-bulk-status");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public BulkStatusResponse changeStatus(BulkStatusRequest request) {
+        validate(request);
+        long matched = shardRouter.onAllShards(true, shard -> cardBulkRepository.count(request))
+                .stream().mapToLong(Long::longValue).sum();
+        Job job = jobs.register(new Job(request, matched));
+        if (job.matched <= asyncThreshold) {
+            run(job);
+        } else {
+            // аудит фоновой задачи записывается от имени администратора, запустившего её
+            executor.execute(new DelegatingSecurityContextRunnable(() -> run(job)));
+        }
+        return job.toResponse();
+    }
+
+    public BulkStatusResponse getStatus(UUID jobId) {
+        return jobs.get(jobId).toResponse();
+    }
+
+    @Scheduled(fixedDelayString = "${card-bulk-status.cleanup-interval-ms:600000}")
+    public void purgeFinished() {
+        jobs.purgeFinished();
+    }
+
+    private void run(Job job) {
+        job.start();
+        try {
+            for (int shard = 0; shard < shardRouter.getShardCount() && !Thread.currentThread().isInterrupted(); shard++) {
+                int target = shard;
+                long lastId = 0;
+                List<CardStatusRow> rows;
+                do {
+                    long afterId = lastId;
+                    rows = shardRouter.inShard(target, false, () -> applyChunk(job.request, afterId));
+                    if (rows == null || rows.isEmpty()) {
+                        break;
+                    }
+                    lastId = rows.get(rows.size() - 1).id();
+                    job.addProcessed(rows.size());
+                } while (rows.size() == chunkSize && !Thread.currentThread().isInterrupted());
+            }
+            job.finish(JobState.COMPLETED, null);
+        } catch (RuntimeException e) {
+            log.error("Bulk status change to {} failed after {} cards", job.request.getStatus(), job.getProcessed(), e);
+            job.finish(JobState.FAILED, e.getMessage());
+        }
+    }
+
+    // Строки порции заблокированы SELECT ... FOR UPDATE, поэтому статусы в rows актуальны до коммита
+    private List<CardStatusRow> applyChunk(BulkStatusRequest request, long afterId) {
+        List<CardStatusRow> rows = cardBulkRepository.lockChunk(request, afterId, chunkSize);
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        CardStatus status = request.getStatus();
+        List<Long> ids = rows.stream().map(CardStatusRow::id).toList();
+        cardRepository.updateStatusByIds(ids, status);
+        cardStatsService.onStatusChanged(rows, status);
+        cardOutboxService.recordStatusChanged(rows, status);
+        auditService.cardEvents(status == CardStatus.BLOCKED ? AuditAction.BLOCK : AuditAction.ACTIVATE, ids);
+        return rows;
+    }
+
+    private static void validate(BulkStatusRequest request) {
+        if (request.getStatus() != CardStatus.BLOCKED && request.getStatus() != CardStatus.ACTIVE) {
+            throw new RuntimeException("Bulk status change supports only BLOCKED and ACTIVE");
+        }
+        boolean hasIds = request.getCardIds() != null && !request.getCardIds().isEmpty();
+        if (!hasIds && request.getOwnerId() == null && request.getExpiresFrom() == null
+                && request.getExpiresTo() == null && request.getCurrentStatus() == null) {
+            // защита от случайной смены статуса у всех карт
+            throw new RuntimeException("Specify card ids or at least one filter");
+        }
+        if (request.getExpiresFrom() != null && request.getExpiresTo() != null
+                && request.getExpiresFrom().isAfter(request.getExpiresTo())) {
+            throw new RuntimeException("expiresFrom must not be after expiresTo");
+        }
+    }
+
+    private static final class Job extends BackgroundJob {
+        private final BulkStatusRequest request;
+        private final long matched;
+
+        private Job(BulkStatusRequest request, long matched) {
+            this.request = request;
+            this.matched = matched;
+        }
+
+        private BulkStatusResponse toResponse() {
+            BulkStatusResponse response = new BulkStatusResponse();
+            response.setJobId(getId());
+            response.setState(getState());
+            response.setStatus(request.getStatus());
+            response.setMatched(matched);
+            response.setUpdated(getProcessed());
+            response.setError(getError());
+            response.setStartedAt(getStartedAt());
+            response.setFinishedAt(getFinishedAt());
+            return response;
+        }
+    }
+}
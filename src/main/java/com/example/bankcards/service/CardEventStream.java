@@ -0,0 +1,299 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.CardOutboxEvent;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.CardOutboxRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.RevokedTokenIndex;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Рассылка изменений карт подписчикам по SSE.
+ * Relay читает outbox по курсору id (каждый экземпляр приложения — свой курсор; при шардировании
+ * outbox и курсор у каждого шарда свои) и раскладывает
+ * события по ограниченным очередям подписчиков: владелец получает события своих карт, ADMIN — все.
+ * id выдаются до коммита, поэтому событие с меньшим id может появиться уже после того, как
+ * курсор прошёл дальше. Пропущенные id курсор запоминает и перечитывает, пока они не появятся
+ * или не истечёт gap-timeout-ms (id откатившейся транзакции не появится никогда).
+ * Отправка идёт на отдельном пуле; подписчик, не успевающий разбирать очередь, отключается
+ * и при переподключении заново запрашивает GET /cards.
+ * Подписка живёт не дольше access-токена, по которому открыта: истёкшие и отозванные
+ * сессии отключаются на heartbeat, клиент переподключается с новым токеном.
+ */
+@Service
+public class CardEventStream {
+
+    // Предел числа ожидаемых id на шард: скачок последовательности не должен съесть память
+    private static final int MAX_GAPS = 100_000;
+
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT =
+            SseEmitter.event().comment("ping").build();
+
+    private final CardOutboxRepository cardOutboxRepository;
+    private final UserRepository userRepository;
+    private final ShardRouter shardRouter;
+    private final RevokedTokenIndex revokedTokenIndex;
+    private final int subscriberBuffer;
+    private final int batchSize;
+    private final long emitterTimeoutMs;
+    private final long retentionMs;
+    private final long gapTimeoutMs;
+    private final ExecutorService sender;
+
+    private final Map<Long, Set<Subscriber>> byOwner = new ConcurrentHashMap<>();
+    private final Set<Subscriber> admins = ConcurrentHashMap.newKeySet();
+
+    // Курсоры по шардам; меняются только под блокировкой relay
+    private final Cursor[] cursors;
+
+    public CardEventStream(CardOutboxRepository cardOutboxRepository,
+                           UserRepository userRepository,
+                           ShardRouter shardRouter,
+                           RevokedTokenIndex revokedTokenIndex,
+                           @Value("${card-events.subscriber-buffer:256}") int subscriberBuffer,
+                           @Value("${card-events.batch-size:500}") int batchSize,
+                           @Value("${card-events.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                           @Value("${card-events.retention-ms:3600000}") long retentionMs,
+                           @Value("${card-events.gap-timeout-ms:60000}") long gapTimeoutMs,
+                           @Value("${card-events.sender-threads:4}") int senderThreads) {
+        this.cardOutboxRepository = cardOutboxRepository;
+        this.userRepository = userRepository;
+        this.shardRouter = shardRouter;
+        this.revokedTokenIndex = revokedTokenIndex;
+        this.cursors = new Cursor[shardRouter.getShardCount()];
+        Arrays.setAll(cursors, shard -> new Cursor());
+        this.subscriberBuffer = subscriberBuffer;
+        this.batchSize = batchSize;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.retentionMs = retentionMs;
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "card-events-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        admins.forEach(Subscriber::complete);
+        byOwner.values().forEach(subscribers -> subscribers.forEach(Subscriber::complete));
+    }
+
+    /**
+     * Подписка по access-токену с сессией sessionId, действующему до expiresAt.
+     * Без сессии и срока (null) поток ограничен только emitter-timeout-ms.
+     */
+    public SseEmitter subscribe(String username, Long sessionId, Instant expiresAt) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> NotFoundException.USER);
+
+        long timeoutMs = emitterTimeoutMs;
+        if (expiresAt != null) {
+            timeoutMs = Math.max(1, Math.min(timeoutMs, expiresAt.toEpochMilli() - System.currentTimeMillis()));
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, subscriberBuffer, sessionId, expiresAt);
+        Runnable remove;
+        if (Role.ADMIN.equals(user.getRole())) {
+            admins.add(subscriber);
+            remove = () -> {
+                subscriber.closed.set(true);
+                admins.remove(subscriber);
+            };
+        } else {
+            // Множество владельца создаётся и удаляется атомарно по ключу: пустые не копятся
+            Long ownerId = user.getId();
+            byOwner.compute(ownerId, (id, subscribers) -> {
+                Set<Subscriber> group = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+                group.add(subscriber);
+                return group;
+            });
+            remove = () -> {
+                subscriber.closed.set(true);
+                byOwner.computeIfPresent(ownerId, (id, subscribers) -> {
+                    subscribers.remove(subscriber);
+                    return subscribers.isEmpty() ? null : subscribers;
+                });
+            };
+        }
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    // Читаем с основной БД, не с реплики
+    @Scheduled(fixedDelayString = "${card-events.poll-interval-ms:500}")
+    public synchronized void relay() {
+        for (int shard = 0; shard < cursors.length; shard++) {
+            Cursor cursor = cursors[shard];
+            shardRouter.inShard(shard, false, () -> {
+                relay(cursor);
+                return null;
+            });
+        }
+    }
+
+    private void relay(Cursor cursor) {
+        // Новые подписчики получают только события, появившиеся после старта экземпляра
+        if (cursor.position < 0) {
+            cursor.position = cardOutboxRepository.findMaxId();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (!cursor.gaps.isEmpty()) {
+            List<Long> missing = new ArrayList<>(cursor.gaps.keySet());
+            for (int from = 0; from < missing.size(); from += batchSize) {
+                List<Long> ids = missing.subList(from, Math.min(from + batchSize, missing.size()));
+                for (CardOutboxEvent event : cardOutboxRepository.findByIdInOrderByIdAsc(ids)) {
+                    dispatch(event);
+                    cursor.gaps.remove(event.getId());
+                }
+            }
+            cursor.gaps.values().removeIf(deadline -> deadline < now);
+        }
+        List<CardOutboxEvent> events;
+        do {
+            events = cardOutboxRepository.findByIdGreaterThanOrderByIdAsc(cursor.position, PageRequest.of(0, batchSize));
+            for (CardOutboxEvent event : events) {
+                // id между курсором и событием заняты незакоммиченными (или откатившимися) транзакциями
+                for (long id = cursor.position + 1; id < event.getId() && cursor.gaps.size() < MAX_GAPS; id++) {
+                    cursor.gaps.put(id, now + gapTimeoutMs);
+                }
+                dispatch(event);
+                cursor.position = event.getId();
+            }
+        } while (events.size() == batchSize);
+    }
+
+    // Комментарий раз в интервал не даёт прокси закрыть простаивающее соединение;
+    // заодно отключаются подписчики с истёкшим или отозванным токеном
+    @Scheduled(fixedDelayString = "${card-events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        Instant now = Instant.now();
+        admins.forEach(subscriber -> heartbeat(subscriber, now));
+        byOwner.values().forEach(subscribers -> subscribers.forEach(subscriber -> heartbeat(subscriber, now)));
+    }
+
+    private void heartbeat(Subscriber subscriber, Instant now) {
+        if ((subscriber.expiresAt != null && !now.isBefore(subscriber.expiresAt))
+                || (subscriber.sessionId != null && revokedTokenIndex.isRevoked(subscriber.sessionId))) {
+            subscriber.complete();
+            return;
+        }
+        offer(subscriber, HEARTBEAT);
+    }
+
+    @Scheduled(fixedDelayString = "${card-events.cleanup-interval-ms:600000}")
+    public void purgeOld() {
+        Instant before = Instant.now().minusMillis(retentionMs);
+        shardRouter.onAllShards(false, shard -> cardOutboxRepository.deleteCreatedBefore(before));
+    }
+
+    public int subscriberCount() {
+        return admins.size() + byOwner.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void dispatch(CardOutboxEvent event) {
+        if (admins.isEmpty() && byOwner.isEmpty()) {
+            return;
+        }
+        Set<ResponseBodyEmitter.DataWithMediaType> message = SseEmitter.event()
+                .id(String.valueOf(event.getId()))
+                .name(event.getEventType().name())
+                .data(event.getPayload())
+                .build();
+        admins.forEach(subscriber -> offer(subscriber, message));
+        Set<Subscriber> owners = byOwner.get(event.getOwnerId());
+        if (owners != null) {
+            owners.forEach(subscriber -> offer(subscriber, message));
+        }
+    }
+
+    private void offer(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> message) {
+        if (subscriber.closed.get()) {
+            return;
+        }
+        if (!subscriber.queue.offer(message)) {
+            // медленный клиент: отключаем, чтобы не копить события в памяти
+            subscriber.complete();
+            return;
+        }
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            sender.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> message;
+            while ((message = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(message);
+            }
+        } catch (IOException | IllegalStateException e) {
+            subscriber.complete();
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        // событие могло прийти между последним poll и сбросом флага
+        if (!subscriber.queue.isEmpty() && !subscriber.closed.get()
+                && subscriber.scheduled.compareAndSet(false, true)) {
+            sender.execute(() -> drain(subscriber));
+        }
+    }
+
+    private static final class Cursor {
+        // -1: ещё не прочитан из БД (читается первым relay, а не при создании бина, чтобы
+        // контекст поднимался без обращения к БД — см. тренировочный запуск AppCDS в Dockerfile)
+        private long position = -1;
+        // Пропущенные id -> момент, после которого их больше не ждём
+        private final Map<Long, Long> gaps = new TreeMap<>();
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Long sessionId;
+        private final Instant expiresAt;
+
+        private Subscriber(SseEmitter emitter, int capacity, Long sessionId, Instant expiresAt) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.sessionId = sessionId;
+            this.expiresAt = expiresAt;
+        }
+
+        private void complete() {
+            if (closed.compareAndSet(false, true)) {
+                emitter.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardLimitRequest;
+import com.example.bankcards.dto.CardLimitResponse;
+import com.example.bankcards.exception.BusinessRuleException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.CardLimitRepository;
+import com.example.bankcards.repository.CardLimitRepository.Limit;
+import com.example.bankcards.repository.CardLimitRepository.Spending;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.SlidingWindowCounter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Дневные и месячные лимиты трат по картам: скользящие 24 часа и 30 суток.
+ * Проверка при переводе идёт только по счётчикам в памяти (без запросов к БД):
+ * у каждой карты с лимитом кольцо почасовых и кольцо посуточных корзин на CAS.
+ * Сумма резервируется до коммита и возвращается при откате; закоммиченные
+ * списания копятся в памяти и пачками пишутся в card_spending, откуда счётчики
+ * восстанавливаются после рестарта. Счётчики — свои у каждого экземпляра; каждое обновление
+ * лимитов досчитывает в окна списания других экземпляров, записанные ими в card_spending.
+ * Лимиты и списания хранятся на шарде карты; фоновые задачи обходят все шарды.
+ */
+@Service
+public class CardLimitService {
+
+    private static final Logger log = LoggerFactory.getLogger(CardLimitService.class);
+
+    private static final long HOUR_MS = 3_600_000L;
+    private static final int DAY_HOURS = 24;
+    private static final int MONTH_DAYS = 30;
+
+    private final CardLimitRepository cardLimitRepository;
+    private final CardRepository cardRepository;
+    private final ShardRouter shardRouter;
+    private final int flushBatchSize;
+
+    // Окна только у карт с лимитами
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+    // Закоммиченные, но ещё не записанные в БД списания: (карта, час) -> копейки
+    private final ConcurrentHashMap<SpendingKey, Long> pending = new ConcurrentHashMap<>();
+
+    // Лимиты загружаются первым переводом или первым обновлением, а не при создании бина
+    private volatile boolean loaded;
+    private volatile long purgedBeforeHour;
+
+    public CardLimitService(CardLimitRepository cardLimitRepository,
+                            CardRepository cardRepository,
+                            ShardRouter shardRouter,
+                            @Value("${card-limits.flush-batch-size:1000}") int flushBatchSize) {
+        this.cardLimitRepository = cardLimitRepository;
+        this.cardRepository = cardRepository;
+        this.shardRouter = shardRouter;
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    // --- проверка, вызывается внутри транзакции перевода ---
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Long cardId, BigDecimal amount) {
+        long cents = toCents(amount);
+        if (cents <= 0) {
+            return;
+        }
+        if (!loaded) {
+            refreshLimits();
+        }
+        long hour = currentHour();
+        Window window = windows.get(cardId);
+        if (window != null) {
+            window.reserve(hour, cents);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    pending.merge(new SpendingKey(cardId, hour), cents, Long::sum);
+                } else if (window != null) {
+                    window.release(hour, cents);
+                }
+            }
+        });
+    }
+
+    /**
+     * Возврат закоммиченного списания (отмена перевода между шардами): после коммита
+     * вызывающей транзакции сумма вычитается из окна карты и из card_spending.
+     *
+     * @param spentAt время исходного списания — сумма возвращается в его корзину
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Long cardId, BigDecimal amount, Instant spentAt) {
+        long cents = toCents(amount);
+        if (cents <= 0) {
+            return;
+        }
+        long hour = spentAt.toEpochMilli() / HOUR_MS;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    Window window = windows.get(cardId);
+                    if (window != null) {
+                        window.release(hour, cents);
+                    }
+                    pending.merge(new SpendingKey(cardId, hour), -cents, Long::sum);
+                }
+            }
+        });
+    }
+
+    // --- управление лимитами (ADMIN) ---
+
+    public CardLimitResponse getLimits(Long cardId) {
+        if (!cardRepository.existsById(cardId)) {
+            throw NotFoundException.CARD;
+        }
+        Limit limit = onShardOf(cardId, () -> cardLimitRepository.findLimit(cardId))
+                .orElse(new Limit(cardId, null, null));
+        Window window = windows.get(cardId);
+        if (window == null) {
+            window = load(limit);
+        }
+        long hour = currentHour();
+        return new CardLimitResponse(cardId, limit.dailyLimit(), limit.monthlyLimit(),
+                BigDecimal.valueOf(window.hours.sum(hour), 2),
+                BigDecimal.valueOf(window.days.sum(hour / DAY_HOURS), 2));
+    }
+
+    public CardLimitResponse setLimits(Long cardId, CardLimitRequest request) {
+        if (!cardRepository.existsById(cardId)) {
+            throw NotFoundException.CARD;
+        }
+        if (request.getDailyLimit() == null && request.getMonthlyLimit() == null) {
+            onShardOf(cardId, () -> cardLimitRepository.deleteLimit(cardId));
+            windows.remove(cardId);
+        } else {
+            Limit limit = new Limit(cardId, request.getDailyLimit(), request.getMonthlyLimit());
+            onShardOf(cardId, () -> cardLimitRepository.saveLimit(cardId, limit.dailyLimit(), limit.monthlyLimit()));
+            apply(limit);
+        }
+        return getLimits(cardId);
+    }
+
+    // --- фоновые задачи ---
+
+    /**
+     * Подхватывает лимиты, изменённые на других экземплярах, забывает удалённые карты и
+     * сверяет окна с card_spending: без этого каждый из K экземпляров пропустил бы по
+     * полному лимиту. Списания других экземпляров видны с задержкой до их записи и обновления.
+     */
+    @Scheduled(fixedDelayString = "${card-limits.refresh-interval-ms:60000}")
+    public synchronized void refreshLimits() {
+        List<Limit> limits = fromAllShards(cardLimitRepository::findAllLimits);
+        Map<Long, Limit> byCard = new HashMap<>();
+        limits.forEach(limit -> byCard.put(limit.cardId(), limit));
+        windows.keySet().removeIf(cardId -> !byCard.containsKey(cardId));
+
+        long hour = currentHour();
+        long since = windowStart(hour);
+        // карта -> (час -> копейки)
+        Map<Long, Map<Long, Long>> spent = new HashMap<>();
+        fromAllShards(() -> cardLimitRepository.findLimitedSpendingSince(since)).forEach(row ->
+                spent.computeIfAbsent(row.cardId(), cardId -> new HashMap<>()).put(row.hour(), row.amount()));
+
+        Map<Long, Window> created = new HashMap<>();
+        for (Limit limit : limits) {
+            Map<Long, Long> cardSpent = spent.getOrDefault(limit.cardId(), Map.of());
+            Window window = windows.get(limit.cardId());
+            if (window != null) {
+                window.setLimits(limit);
+                window.reconcile(hour, since, cardSpent);
+            } else {
+                Window fresh = new Window(limit);
+                cardSpent.forEach((spentHour, amount) -> fresh.addExternal(hour, spentHour, amount));
+                created.put(limit.cardId(), fresh);
+            }
+        }
+        addPending(created, hour);
+        created.forEach(windows::putIfAbsent);
+        loaded = true;
+    }
+
+    // Не пересекается с обновлением: сверка считает свои записанные суммы по окну
+    @Scheduled(fixedDelayString = "${card-limits.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        List<Spending> rows = new ArrayList<>();
+        for (SpendingKey key : pending.keySet()) {
+            Long amount = pending.remove(key);
+            if (amount != null) {
+                rows.add(new Spending(key.cardId(), key.hour(), amount));
+            }
+        }
+        // Строки пишутся на шард своей карты
+        Map<Integer, List<Spending>> byShard = new HashMap<>();
+        rows.forEach(row -> byShard.computeIfAbsent(shardRouter.shardOfId(row.cardId()), shard -> new ArrayList<>())
+                .add(row));
+        byShard.forEach((shard, shardRows) -> {
+            for (int from = 0; from < shardRows.size(); from += flushBatchSize) {
+                List<Spending> batch = shardRows.subList(from, Math.min(from + flushBatchSize, shardRows.size()));
+                try {
+                    onShardOf(batch.get(0).cardId(), () -> cardLimitRepository.addSpending(batch));
+                    batch.forEach(this::markFlushed);
+                } catch (DataAccessException e) {
+                    batch.forEach(this::flushRow);
+                }
+            }
+        });
+
+        // Старше месячного окна строки не нужны; чистим раз в сутки, при сдвиге окна
+        long keepFrom = windowStart(currentHour());
+        if (keepFrom > purgedBeforeHour) {
+            fromAllShards(() -> List.of(cardLimitRepository.deleteSpendingBefore(keepFrom)));
+            purgedBeforeHour = keepFrom;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void flushRow(Spending row) {
+        try {
+            addSpendingRetrying(row);
+            markFlushed(row);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Dropping spending of deleted card {}", row.cardId());
+        } catch (DataAccessException e) {
+            // БД недоступна: повторим при следующей записи
+            pending.merge(new SpendingKey(row.cardId(), row.hour()), row.amount(), Long::sum);
+            log.warn("Failed to persist card spending, will retry: {}", e.getMessage());
+        }
+    }
+
+    // Строку мог вставить другой экземпляр: повтор обновит её
+    private void addSpendingRetrying(Spending row) {
+        try {
+            onShardOf(row.cardId(), () -> cardLimitRepository.addSpending(List.of(row)));
+        } catch (DataIntegrityViolationException e) {
+            onShardOf(row.cardId(), () -> cardLimitRepository.addSpending(List.of(row)));
+        }
+    }
+
+    private void markFlushed(Spending row) {
+        Window window = windows.get(row.cardId());
+        if (window != null) {
+            window.flushed.merge(row.hour(), row.amount(), Long::sum);
+        }
+    }
+
+    // Обновляет лимит существующего окна, для новой карты восстанавливает счётчики из БД
+    private void apply(Limit limit) {
+        Window window = windows.get(limit.cardId());
+        if (window != null) {
+            window.setLimits(limit);
+        } else {
+            windows.putIfAbsent(limit.cardId(), load(limit));
+        }
+    }
+
+    // Окно карты по списаниям из БД и ещё не записанным
+    private Window load(Limit limit) {
+        Window window = new Window(limit);
+        long hour = currentHour();
+        onShardOf(limit.cardId(), () -> cardLimitRepository.findSpendingSince(limit.cardId(), windowStart(hour)))
+                .forEach(row -> window.addExternal(hour, row.hour(), row.amount()));
+        addPending(Map.of(limit.cardId(), window), hour);
+        return window;
+    }
+
+    // Свои ещё не записанные списания — одним проходом по pending для всех новых окон
+    private void addPending(Map<Long, Window> created, long hour) {
+        if (created.isEmpty()) {
+            return;
+        }
+        pending.forEach((key, amount) -> {
+            Window window = created.get(key.cardId());
+            if (window != null) {
+                window.add(hour, key.hour(), amount);
+            }
+        });
+    }
+
+    // Без шардирования вызов идёт в текущей транзакции или без неё, как раньше;
+    // при шардировании — в транзакции шарда карты. Чтение с основной БД, не с реплики
+    private <T> T onShardOf(long cardId, Supplier<T> action) {
+        return shardRouter.isSharded()
+                ? shardRouter.inShard(shardRouter.shardOfId(cardId), false, action)
+                : action.get();
+    }
+
+    private void onShardOf(long cardId, Runnable action) {
+        onShardOf(cardId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> List<T> fromAllShards(Supplier<List<T>> action) {
+        if (!shardRouter.isSharded()) {
+            return action.get();
+        }
+        List<T> merged = new ArrayList<>();
+        shardRouter.onAllShards(false, shard -> action.get()).forEach(merged::addAll);
+        return merged;
+    }
+
+    // Первый час самой старой суточной корзины месячного окна
+    private static long windowStart(long hour) {
+        return (hour / DAY_HOURS - MONTH_DAYS + 1) * DAY_HOURS;
+    }
+
+    private static long currentHour() {
+        return System.currentTimeMillis() / HOUR_MS;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.UP).unscaledValue().longValueExact();
+    }
+
+    private record SpendingKey(long cardId, long hour) {
+    }
+
+    private static final class Window {
+        private final SlidingWindowCounter hours = new SlidingWindowCounter(DAY_HOURS);
+        private final SlidingWindowCounter days = new SlidingWindowCounter(MONTH_DAYS);
+        private volatile long dailyLimit;
+        private volatile long monthlyLimit;
+        // Списания из card_spending, кроме своих записанных после создания окна: час -> копейки.
+        // Меняется только под блокировкой сервиса (обновление лимитов)
+        private final Map<Long, Long> external = new HashMap<>();
+        // Свои списания, записанные в card_spending после создания окна: час -> копейки
+        private final Map<Long, Long> flushed = new ConcurrentHashMap<>();
+
+        Window(Limit limit) {
+            setLimits(limit);
+        }
+
+        void setLimits(Limit limit) {
+            dailyLimit = limit.dailyLimit() != null ? toCents(limit.dailyLimit()) : Long.MAX_VALUE;
+            monthlyLimit = limit.monthlyLimit() != null ? toCents(limit.monthlyLimit()) : Long.MAX_VALUE;
+        }
+
+        void reserve(long hour, long amount) {
+            if (!hours.tryAdd(hour, amount, dailyLimit)) {
+                throw BusinessRuleException.DAILY_LIMIT_EXCEEDED;
+            }
+            if (!days.tryAdd(hour / DAY_HOURS, amount, monthlyLimit)) {
+                hours.subtract(hour, amount);
+                throw BusinessRuleException.MONTHLY_LIMIT_EXCEEDED;
+            }
+        }
+
+        void release(long hour, long amount) {
+            hours.subtract(hour, amount);
+            days.subtract(hour / DAY_HOURS, amount);
+        }
+
+        // Восстановление: почасовое кольцо хранит только последние сутки
+        void add(long now, long hour, long amount) {
+            if (hour > now - DAY_HOURS) {
+                hours.add(hour, amount);
+            }
+            days.add(hour / DAY_HOURS, amount);
+        }
+
+        void addExternal(long now, long hour, long amount) {
+            add(now, hour, amount);
+            external.merge(hour, amount, Long::sum);
+        }
+
+        /**
+         * Приводит чужую часть окна к card_spending: в БД по часу лежит чужое и своё
+         * записанное, своё уже учтено резервом, поэтому чужое = в БД − своё записанное.
+         * Корзины меняются на разницу, а не перезаписываются, и параллельные резервы не теряются.
+         */
+        void reconcile(long now, long since, Map<Long, Long> spent) {
+            Set<Long> spentHours = new HashSet<>(external.keySet());
+            spentHours.addAll(spent.keySet());
+            for (long hour : spentHours) {
+                if (hour < since) {
+                    external.remove(hour);
+                    continue;
+                }
+                long actual = spent.getOrDefault(hour, 0L) - flushed.getOrDefault(hour, 0L);
+                long delta = actual - external.getOrDefault(hour, 0L);
+                if (delta > 0) {
+                    add(now, hour, delta);
+                } else if (delta < 0) {
+                    release(hour, -delta);
+                }
+                if (actual == 0) {
+                    external.remove(hour);
+                } else {
+                    external.put(hour, actual);
+                }
+            }
+            flushed.keySet().removeIf(hour -> hour < since);
+        }
+    }
+}
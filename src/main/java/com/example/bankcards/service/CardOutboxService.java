@@ -0,0 +1,117 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardEventType;
+import com.example.bankcards.entity.CardOutboxEvent;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardArchiveRepository.ExpiredCard;
+import com.example.bankcards.repository.CardBulkRepository.CardStatusRow;
+import com.example.bankcards.repository.CardOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Запись событий в outbox; вызывается внутри транзакций CardService
+@Service
+public class CardOutboxService {
+
+    private final CardOutboxRepository cardOutboxRepository;
+    private final ObjectMapper objectMapper;
+
+    public CardOutboxService(CardOutboxRepository cardOutboxRepository, ObjectMapper objectMapper) {
+        this.cardOutboxRepository = cardOutboxRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Card card, CardEventType type) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("cardId", card.getId());
+        payload.put("type", type);
+        payload.put("maskedNumber", card.getMaskedCardNumber());
+        payload.put("status", card.getStatus());
+        payload.put("balance", card.getBalance());
+        payload.put("expirationDate", card.getExpirationDate());
+        save(card.getOwner().getId(), card.getId(), type, payload);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(Long cardId, Long ownerId) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("cardId", cardId);
+        payload.put("type", CardEventType.DELETED);
+        save(ownerId, cardId, CardEventType.DELETED, payload);
+    }
+
+    // Массовое удаление карт пользователя
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(Long ownerId, List<Long> cardIds) {
+        Instant now = Instant.now();
+        List<CardOutboxEvent> events = new ArrayList<>(cardIds.size());
+        for (Long cardId : cardIds) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("cardId", cardId);
+            payload.put("type", CardEventType.DELETED);
+            events.add(event(ownerId, cardId, CardEventType.DELETED, payload, now));
+        }
+        cardOutboxRepository.insertBatch(events);
+    }
+
+    // Массовая смена статуса: номер карты в событие не попадает, чтобы не расшифровывать каждую карту
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStatusChanged(List<CardStatusRow> cards, CardStatus status) {
+        Instant now = Instant.now();
+        List<CardOutboxEvent> events = new ArrayList<>(cards.size());
+        for (CardStatusRow card : cards) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("cardId", card.id());
+            payload.put("type", CardEventType.STATUS_CHANGED);
+            payload.put("status", status);
+            payload.put("balance", card.balance());
+            events.add(event(card.ownerId(), card.id(), CardEventType.STATUS_CHANGED, payload, now));
+        }
+        cardOutboxRepository.insertBatch(events);
+    }
+
+    // Перенос в архив для подписчиков равносилен удалению карты
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordArchived(List<ExpiredCard> cards) {
+        Instant now = Instant.now();
+        List<CardOutboxEvent> events = new ArrayList<>(cards.size());
+        for (ExpiredCard card : cards) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("cardId", card.id());
+            payload.put("type", CardEventType.DELETED);
+            payload.put("archived", true);
+            events.add(event(card.ownerId(), card.id(), CardEventType.DELETED, payload, now));
+        }
+        cardOutboxRepository.insertBatch(events);
+    }
+
+    private void save(Long ownerId, Long cardId, CardEventType type, Map<String, Object> payload) {
+        cardOutboxRepository.save(event(ownerId, cardId, type, payload, Instant.now()));
+    }
+
+    private CardOutboxEvent event(Long ownerId, Long cardId, CardEventType type, Map<String, Object> payload,
+                                  Instant createdAt) {
+        CardOutboxEvent event = new CardOutboxEvent();
+        event.setOwnerId(ownerId);
+        event.setCardId(cardId);
+        event.setEventType(type);
+        event.setCreatedAt(createdAt);
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error serializing card event", e);
+        }
+        return event;
+    }
+}
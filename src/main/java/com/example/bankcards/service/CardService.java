@@ -1,96 +1,231 @@
 package com.example.bankcards.service;
 
 
+import com.example.bankcards.entity.AuditAction;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardArchiveReason;
+import com.example.bankcards.entity.CardEventType;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.BusinessRuleException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.CardArchiveRepository;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.ETags;
+import com.example.bankcards.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class CardService {
 
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
-
-    public CardService(CardRepository cardRepository, UserRepository userRepository) {
+    private final AuditService auditService;
+    private final CardOutboxService cardOutboxService;
+    private final CardStatsService cardStatsService;
+    private final CardLimitService cardLimitService;
+    private final ShardRouter shardRouter;
+    private final CrossShardTransferService crossShardTransferService;
+    private final CardArchiveRepository cardArchiveRepository;
+    private final EntityManager entityManager;
+    // Одновременные GET /cards одного пользователя с одним ETag загружают и расшифровывают карты один раз
+    private final SingleFlight<String, List<Card>> cardsFlight;
+
+    public CardService(CardRepository cardRepository, UserRepository userRepository, AuditService auditService,
+                       CardOutboxService cardOutboxService, CardStatsService cardStatsService,
+                       CardLimitService cardLimitService, ShardRouter shardRouter,
+                       CrossShardTransferService crossShardTransferService,
+                       CardArchiveRepository cardArchiveRepository, EntityManager entityManager,
+                       MeterRegistry meterRegistry) {
         this.cardRepository = cardRepository;
         this.userRepository = userRepository;
+        this.auditService = auditService;
+        this.cardOutboxService = cardOutboxService;
+        this.cardStatsService = cardStatsService;
+        this.cardLimitService = cardLimitService;
+        this.shardRouter = shardRouter;
+        this.crossShardTransferService = crossShardTransferService;
+        this.cardArchiveRepository = cardArchiveRepository;
+        this.entityManager = entityManager;
+        this.cardsFlight = new SingleFlight<String, List<Card>>().bindTo(meterRegistry, "cards-for-current-user");
     }
 
     // Создание карты (ADMIN)
+    @Transactional
     public Card createCard(Card card, Long userId) {
         User owner = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+                .orElseThrow(() -> NotFoundException.USER);
         card.setOwner(owner);
         card.setStatus(CardStatus.ACTIVE);
-        return cardRepository.save(card);
+        Card saved = cardRepository.save(card);
+        cardOutboxService.record(saved, CardEventType.CREATED);
+        cardStatsService.onCreated(saved);
+        return saved;
     }
 
     // Блокировка карты (ADMIN)
     @Transactional
     public void blockCard(Long cardId) {
         Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new RuntimeException("Card not found"));
+                .orElseThrow(() -> NotFoundException.CARD);
+        CardStatus previous = card.getStatus();
         card.setStatus(CardStatus.BLOCKED);
+        cardOutboxService.record(card, CardEventType.STATUS_CHANGED);
+        cardStatsService.onStatusChanged(card, previous);
+        auditService.cardEvent(AuditAction.BLOCK, cardId);
     }
 
     // Активация карты (ADMIN)
     @Transactional
     public void activateCard(Long cardId) {
         Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new RuntimeException("Card not found"));
+                .orElseThrow(() -> NotFoundException.CARD);
+        CardStatus previous = card.getStatus();
         card.setStatus(CardStatus.ACTIVE);
+        cardOutboxService.record(card, CardEventType.STATUS_CHANGED);
+        cardStatsService.onStatusChanged(card, previous);
+        auditService.cardEvent(AuditAction.ACTIVATE, cardId);
     }
 
-    // Удаление карты (ADMIN)
+    // Удаление карты (ADMIN); копия остаётся в архиве (GET /admin/archive/cards/{id})
+    @Transactional
     public void deleteCard(Long cardId) {
+        Optional<Card> card = cardRepository.findById(cardId);
+        card.ifPresent(deleted -> cardArchiveRepository.copy(List.of(cardId), CardArchiveReason.DELETED));
         cardRepository.deleteById(cardId);
+        card.ifPresent(deleted -> {
+            cardOutboxService.recordDeleted(cardId, deleted.getOwner().getId());
+            cardStatsService.onDeleted(deleted);
+            auditService.cardEvent(AuditAction.DELETE, cardId);
+        });
     }
 
     // Запрос блокировки (USER)
     @Transactional
     public void requestBlock(Long cardId) {
         Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new RuntimeException("Card not found"));
+                .orElseThrow(() -> NotFoundException.CARD);
+        CardStatus previous = card.getStatus();
         card.setStatus(CardStatus.BLOCKED);
+        cardOutboxService.record(card, CardEventType.STATUS_CHANGED);
+        cardStatsService.onStatusChanged(card, previous);
+        auditService.cardEvent(AuditAction.REQUEST_BLOCK, cardId);
     }
 
     // Перевод между картами (USER)
     @Transactional
     public void transfer(Long fromCardId, Long toCardId, BigDecimal amount) {
+        // Нулевая или отрицательная сумма обошла бы лимиты и списала бы деньги с карты получателя
+        if (amount == null || amount.signum() <= 0) {
+            throw BusinessRuleException.NON_POSITIVE_AMOUNT;
+        }
+        // Карты на разных шардах: двухфазный перевод, каждая фаза в транзакции своего шарда
+        if (!shardRouter.isSameShard(fromCardId, toCardId)) {
+            crossShardTransferService.transfer(fromCardId, toCardId, amount);
+            auditService.transfer(fromCardId, toCardId, amount);
+            return;
+        }
         Card from = cardRepository.findById(fromCardId)
-                .orElseThrow(() -> new RuntimeException("Source card not found"));
+                .orElseThrow(() -> NotFoundException.SOURCE_CARD);
         Card to = cardRepository.findById(toCardId)
-                .orElseThrow(() -> new RuntimeException("Target card not found"));
+                .orElseThrow(() -> NotFoundException.TARGET_CARD);
 
         if (from.getBalance().compareTo(amount) < 0) {
-            throw new RuntimeException("Insufficient funds");
+            throw BusinessRuleException.INSUFFICIENT_FUNDS;
         }
+        // Лимиты по счётчикам в памяти; при откате перевода резерв возвращается
+        cardLimitService.reserve(fromCardId, amount);
 
         from.setBalance(from.getBalance().subtract(amount));
         to.setBalance(to.getBalance().add(amount));
+        cardOutboxService.record(from, CardEventType.BALANCE_CHANGED);
+        cardOutboxService.record(to, CardEventType.BALANCE_CHANGED);
+        cardStatsService.onTransfer(from, to, amount);
+        auditService.transfer(fromCardId, toCardId, amount);
     }
 
 
+    // ETag списка карт текущего пользователя по версиям, без загрузки карт
+    @Transactional(readOnly = true)
+    public String getCardsEtag() {
+        User currentUser = currentUser();
+        return ETags.cards(Role.ADMIN.equals(currentUser.getRole())
+                ? cardRepository.findAllVersions()
+                : cardRepository.findVersionsByOwnerId(currentUser.getId()));
+    }
+
+    // ETag карты; пусто, если карты нет или она недоступна текущему пользователю
+    @Transactional(readOnly = true)
+    public Optional<String> getCardEtag(Long cardId) {
+        User currentUser = currentUser();
+        Optional<Long> version = Role.ADMIN.equals(currentUser.getRole())
+                ? cardRepository.findVersionById(cardId)
+                : cardRepository.findVersionByIdAndOwnerId(cardId, currentUser.getId());
+        return version.map(v -> ETags.card(cardId, v));
+    }
+
+    // Просмотр карты (ADMIN любую, USER только свою)
+    @Transactional(readOnly = true)
+    public Optional<Card> getCardForCurrentUser(Long cardId) {
+        User currentUser = currentUser();
+        return cardRepository.findById(cardId)
+                .filter(card -> Role.ADMIN.equals(currentUser.getRole())
+                        || card.getOwner().getId().equals(currentUser.getId()));
+    }
+
     // Просмотр карт (ADMIN видит все, USER только свои)
+    @Transactional(readOnly = true)
     public List<Card> getCardsForCurrentUser() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        if (Role.ADMIN.equals(currentUser.getRole())) {
-            return cardRepository.findAll();
-        } else {
-            return cardRepository.findByOwner(currentUser);
+        return getCardsForCurrentUser(getCardsEtag());
+    }
+
+    /**
+     * Карты текущего пользователя для ответа с ETag, посчитанным до загрузки.
+     * Одновременные вызовы с тем же пользователем и ETag получают результат одной загрузки;
+     * ETag в ключе не даёт отдать с новым ETag карты, загруженные до изменения.
+     */
+    @Transactional(readOnly = true)
+    public List<Card> getCardsForCurrentUser(String etag) {
+        String username = currentUsername();
+        return cardsFlight.execute(username + '\n' + etag, () -> loadCards(username));
+    }
+
+    private List<Card> loadCards(String username) {
+        User currentUser = findUser(username);
+        List<Card> cards = Role.ADMIN.equals(currentUser.getRole())
+                ? cardRepository.findAll()
+                : cardRepository.findByOwner(currentUser);
+        // Результат сериализуют потоки других запросов, а сессия лидера открыта до конца его запроса:
+        // весь граф ответа (карты и владельцы без их списков карт) загружается здесь и отсоединяется
+        for (Card card : cards) {
+            Hibernate.initialize(card.getOwner());
+            entityManager.detach(card.getOwner());
+            entityManager.detach(card);
         }
+        return cards;
     }
-}
 
+    private User currentUser() {
+        return findUser(currentUsername());
+    }
+
+    private User findUser(String username) {
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> NotFoundException.USER);
+    }
+
+    private static String currentUsername() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+}
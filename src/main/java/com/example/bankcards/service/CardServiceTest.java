@@ -1,11 +1,15 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.config.ShardingProperties;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardArchiveRepository;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -23,13 +27,24 @@ class CardServiceTest {
 
     private CardRepository cardRepository;
     private UserRepository userRepository;
+    private AuditService auditService;
+    private CardOutboxService cardOutboxService;
+    private CardStatsService cardStatsService;
+    private CardLimitService cardLimitService;
     private CardService cardService;
 
     @BeforeEach
     void setUp() {
         cardRepository = mock(CardRepository.class);
         userRepository = mock(UserRepository.class);
-        cardService = new CardService(cardRepository, userRepository);
+        auditService = mock(AuditService.class);
+        cardOutboxService = mock(CardOutboxService.class);
+        cardStatsService = mock(CardStatsService.class);
+        cardLimitService = mock(CardLimitService.class);
+        cardService = new CardService(cardRepository, userRepository, auditService, cardOutboxService,
+                cardStatsService, cardLimitService, new ShardRouter(new ShardingProperties(), null),
+                mock(CrossShardTransferService.class), mock(CardArchiveRepository.class), mock(EntityManager.class),
+                new SimpleMeterRegistry());
     }
 
     @Test
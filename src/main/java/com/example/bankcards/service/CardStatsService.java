@@ -0,0 +1,397 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardStatsResponse;
+import com.example.bankcards.dto.UserCardStatsResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardArchiveRepository.ExpiredCard;
+import com.example.bankcards.repository.CardBulkRepository.CardStatusRow;
+import com.example.bankcards.repository.CardStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Инкрементальная статистика по картам для администратора.
+ * Счётчики меняются в транзакциях CardService вместе с самими картами,
+ * поэтому GET /admin/stats читает десятки строк независимо от числа карт.
+ * Периодическая сверка с полным агрегатом по cards исправляет возможный дрейф.
+ * При шардировании счётчики каждого шарда описывают его карты: чтение суммирует шарды,
+ * сверка идёт по шардам по очереди.
+ */
+@Service
+public class CardStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(CardStatsService.class);
+
+    // Слоты счётчика статуса: параллельные транзакции обновляют разные строки
+    private static final int SLOTS = 16;
+
+    private final CardStatsRepository cardStatsRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate snapshotTx;
+    private final TransactionTemplate writeTx;
+    private final int expiringMonths;
+
+    public CardStatsService(CardStatsRepository cardStatsRepository,
+                            ShardRouter shardRouter,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${admin-stats.expiring-months:3}") int expiringMonths) {
+        this.cardStatsRepository = cardStatsRepository;
+        this.shardRouter = shardRouter;
+        this.expiringMonths = expiringMonths;
+        this.snapshotTx = new TransactionTemplate(transactionManager);
+        this.snapshotTx.setReadOnly(true);
+        this.snapshotTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.writeTx = new TransactionTemplate(transactionManager);
+    }
+
+    // --- изменения, вызываются внутри транзакций CardService ---
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onCreated(Card card) {
+        addToStatus(card.getStatus(), 1, balanceOf(card));
+        addToExpiry(monthOf(card.getExpirationDate()), 1);
+        addToUser(card.getOwner().getId(), 1, balanceOf(card));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onStatusChanged(Card card, CardStatus previous) {
+        if (previous == card.getStatus()) {
+            return;
+        }
+        // одинаковый порядок обновления строк во всех транзакциях исключает взаимные блокировки
+        boolean previousFirst = previous.compareTo(card.getStatus()) < 0;
+        if (previousFirst) {
+            addToStatus(previous, -1, balanceOf(card).negate());
+        }
+        addToStatus(card.getStatus(), 1, balanceOf(card));
+        if (!previousFirst) {
+            addToStatus(previous, -1, balanceOf(card).negate());
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onTransfer(Card from, Card to, BigDecimal amount) {
+        if (from.getStatus() != to.getStatus()) {
+            boolean fromFirst = from.getStatus().compareTo(to.getStatus()) < 0;
+            addToStatus(fromFirst ? from.getStatus() : to.getStatus(), 0, fromFirst ? amount.negate() : amount);
+            addToStatus(fromFirst ? to.getStatus() : from.getStatus(), 0, fromFirst ? amount : amount.negate());
+        }
+        Long fromOwner = from.getOwner().getId();
+        Long toOwner = to.getOwner().getId();
+        if (!fromOwner.equals(toOwner)) {
+            boolean fromFirst = fromOwner < toOwner;
+            addToUser(fromFirst ? fromOwner : toOwner, 0, fromFirst ? amount.negate() : amount);
+            addToUser(fromFirst ? toOwner : fromOwner, 0, fromFirst ? amount : amount.negate());
+        }
+    }
+
+    // Одна сторона перевода между шардами: счётчики каждой стороны меняются в транзакции её шарда
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onBalanceChanged(Card card, BigDecimal delta) {
+        // 0 — изменение числа карт; слот строки выбирается случайно в addToStatus
+        addToStatus(card.getStatus(), 0, delta);
+        addToUser(card.getOwner().getId(), 0, delta);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onDeleted(Card card) {
+        addToStatus(card.getStatus(), -1, balanceOf(card).negate());
+        addToExpiry(monthOf(card.getExpirationDate()), -1);
+        addToUser(card.getOwner().getId(), -1, balanceOf(card).negate());
+    }
+
+    // Вызывается до удаления карт пользователя; строка user_card_stats удаляется каскадом
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onUserDeleted(Long userId) {
+        subtract(cardStatsRepository.aggregateOwnerCards(userId));
+    }
+
+    // Массовая смена статуса; rows — карты со статусом до изменения
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onStatusChanged(List<CardStatusRow> rows, CardStatus status) {
+        Map<CardStatus, Delta> removed = new EnumMap<>(CardStatus.class);
+        Delta added = new Delta();
+        for (CardStatusRow row : rows) {
+            if (row.status() != status) {
+                BigDecimal balance = row.balance() != null ? row.balance() : BigDecimal.ZERO;
+                removed.computeIfAbsent(row.status(), s -> new Delta()).add(1, balance);
+                added.add(1, balance);
+            }
+        }
+        if (added.count == 0) {
+            return;
+        }
+        // статусы обновляются в порядке enum — тот же порядок блокировок, что и в onStatusChanged(Card)
+        for (CardStatus cardStatus : CardStatus.values()) {
+            Delta delta = removed.get(cardStatus);
+            if (cardStatus == status) {
+                addToStatus(status, added.count, added.balance);
+            } else if (delta != null) {
+                addToStatus(cardStatus, -delta.count, delta.balance.negate());
+            }
+        }
+    }
+
+    // Вызывается до массового удаления части карт пользователя
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onCardsDeleted(Long ownerId, List<Long> cardIds) {
+        if (cardIds.isEmpty()) {
+            return;
+        }
+        Delta removed = subtract(cardStatsRepository.aggregateCards(cardIds));
+        addToUser(ownerId, -removed.count, removed.balance.negate());
+    }
+
+    // Порция карт переносится в архив: счётчики описывают только горячую таблицу cards
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onArchived(List<ExpiredCard> cards) {
+        Map<CardStatus, Delta> byStatus = new EnumMap<>(CardStatus.class);
+        Map<LocalDate, Delta> byMonth = new TreeMap<>();
+        Map<Long, Delta> byOwner = new TreeMap<>();
+        for (ExpiredCard card : cards) {
+            BigDecimal balance = card.balance() != null ? card.balance() : BigDecimal.ZERO;
+            byStatus.computeIfAbsent(card.status(), s -> new Delta()).add(1, balance);
+            byMonth.computeIfAbsent(monthOf(card.expirationDate()), m -> new Delta()).add(1, BigDecimal.ZERO);
+            byOwner.computeIfAbsent(card.ownerId(), id -> new Delta()).add(1, balance);
+        }
+        // статусы в порядке enum, пользователи по возрастанию id — постоянный порядок блокировок
+        byStatus.forEach((status, delta) -> addToStatus(status, -delta.count, delta.balance.negate()));
+        byMonth.forEach((month, delta) -> addToExpiry(month, -delta.count));
+        byOwner.forEach((ownerId, delta) -> addToUser(ownerId, -delta.count, delta.balance.negate()));
+    }
+
+    // --- чтение ---
+
+    public CardStatsResponse getStats() {
+        LocalDate from = monthOf(LocalDate.now());
+        LocalDate to = from.plusMonths(expiringMonths - 1L);
+        List<ShardStats> shards = shardRouter.onAllShards(true, shard ->
+                new ShardStats(cardStatsRepository.findStatusTotals(), cardStatsRepository.findExpiryCounts(from, to)));
+
+        Map<CardStatus, Long> byStatus = new EnumMap<>(CardStatus.class);
+        for (CardStatus status : CardStatus.values()) {
+            byStatus.put(status, 0L);
+        }
+        long totalCards = 0;
+        BigDecimal totalBalance = BigDecimal.ZERO;
+        Map<LocalDate, Long> expiry = new HashMap<>();
+        for (ShardStats shard : shards) {
+            for (Map<String, Object> row : shard.statusTotals()) {
+                long count = ((Number) row.get("card_count")).longValue();
+                byStatus.merge(CardStatus.valueOf((String) row.get("status")), count, Long::sum);
+                totalCards += count;
+                totalBalance = totalBalance.add(decimal(row.get("total_balance")));
+            }
+            shard.expiryCounts().forEach((month, count) -> expiry.merge(month, count, Long::sum));
+        }
+
+        Map<String, Long> byMonth = new TreeMap<>();
+        long expiringSoon = 0;
+        for (LocalDate month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            long count = expiry.getOrDefault(month, 0L);
+            byMonth.put(YearMonth.from(month).toString(), count);
+            expiringSoon += count;
+        }
+
+        CardStatsResponse response = new CardStatsResponse();
+        response.setTotalCards(totalCards);
+        response.setTotalBalance(totalBalance);
+        response.setCardsByStatus(byStatus);
+        response.setExpiringSoon(expiringSoon);
+        response.setExpiringByMonth(byMonth);
+        return response;
+    }
+
+    // Счётчики пользователя лежат на его шарде
+    public UserCardStatsResponse getUserStats(Long userId) {
+        List<Map<String, Object>> rows = shardRouter.inShard(shardRouter.shardOfId(userId), true,
+                () -> cardStatsRepository.findUserStats(userId));
+        if (rows.isEmpty()) {
+            return new UserCardStatsResponse(userId, 0, BigDecimal.ZERO);
+        }
+        Map<String, Object> row = rows.get(0);
+        return new UserCardStatsResponse(userId, ((Number) row.get("card_count")).longValue(),
+                decimal(row.get("total_balance")));
+    }
+
+    // --- сверка ---
+
+    /**
+     * Агрегат и счётчики читаются в одном снимке (REPEATABLE READ), разница применяется
+     * относительными обновлениями в отдельной транзакции и поэтому не затирает
+     * изменения, сделанные параллельно со сверкой.
+     */
+    @Scheduled(fixedDelayString = "${admin-stats.reconcile-interval-ms:3600000}",
+            initialDelayString = "${admin-stats.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            reconcile(shard);
+        }
+    }
+
+    private void reconcile(int shard) {
+        Drift drift = snapshotTx.execute(status -> {
+            shardRouter.pin(shard);
+            return computeDrift();
+        });
+        if (drift == null || drift.isEmpty()) {
+            return;
+        }
+        log.warn("Card stats drift detected on shard {}: {} status, {} expiry, {} user counters",
+                shard, drift.status.size(), drift.expiry.size(), drift.users.size());
+        writeTx.executeWithoutResult(status -> {
+            shardRouter.pin(shard);
+            drift.status.forEach((cardStatus, delta) -> addToStatus(cardStatus, delta.count, delta.balance));
+            drift.expiry.forEach((month, delta) -> addToExpiry(month, delta.count));
+            drift.users.forEach((userId, delta) -> addToUser(userId, delta.count, delta.balance));
+        });
+    }
+
+    private Drift computeDrift() {
+        Drift drift = new Drift();
+
+        Map<CardStatus, Delta> statusDelta = new EnumMap<>(CardStatus.class);
+        for (Map<String, Object> row : cardStatsRepository.aggregateByStatus()) {
+            statusDelta.computeIfAbsent(CardStatus.valueOf((String) row.get("status")), s -> new Delta())
+                    .add(((Number) row.get("card_count")).longValue(), decimal(row.get("total_balance")));
+        }
+        for (Map<String, Object> row : cardStatsRepository.findStatusTotals()) {
+            statusDelta.computeIfAbsent(CardStatus.valueOf((String) row.get("status")), s -> new Delta())
+                    .add(-((Number) row.get("card_count")).longValue(), decimal(row.get("total_balance")).negate());
+        }
+        statusDelta.forEach((status, delta) -> {
+            if (!delta.isZero()) {
+                drift.status.put(status, delta);
+            }
+        });
+
+        Map<LocalDate, Delta> expiryDelta = new HashMap<>();
+        for (Map<String, Object> row : cardStatsRepository.aggregateByExpirationDate()) {
+            expiryDelta.computeIfAbsent(monthOf(((Date) row.get("expiration_date")).toLocalDate()), m -> new Delta())
+                    .add(((Number) row.get("card_count")).longValue(), BigDecimal.ZERO);
+        }
+        for (Map<String, Object> row : cardStatsRepository.findAllExpiry()) {
+            expiryDelta.computeIfAbsent(((Date) row.get("expiry_month")).toLocalDate(), m -> new Delta())
+                    .add(-((Number) row.get("card_count")).longValue(), BigDecimal.ZERO);
+        }
+        expiryDelta.forEach((month, delta) -> {
+            if (!delta.isZero()) {
+                drift.expiry.put(month, delta);
+            }
+        });
+
+        Map<Long, Delta> userDelta = new HashMap<>();
+        for (Map<String, Object> row : cardStatsRepository.aggregateByOwner()) {
+            userDelta.computeIfAbsent(((Number) row.get("owner_id")).longValue(), id -> new Delta())
+                    .add(((Number) row.get("card_count")).longValue(), decimal(row.get("total_balance")));
+        }
+        for (Map<String, Object> row : cardStatsRepository.findAllUserStats()) {
+            userDelta.computeIfAbsent(((Number) row.get("user_id")).longValue(), id -> new Delta())
+                    .add(-((Number) row.get("card_count")).longValue(), decimal(row.get("total_balance")).negate());
+        }
+        userDelta.forEach((userId, delta) -> {
+            if (!delta.isZero()) {
+                drift.users.put(userId, delta);
+            }
+        });
+        return drift;
+    }
+
+    // --- обновление строк счётчиков ---
+
+    // Вычитает агрегат (status, expiration_date) из счётчиков статусов и сроков; возвращает его итог
+    private Delta subtract(List<Map<String, Object>> aggregate) {
+        Delta total = new Delta();
+        for (Map<String, Object> row : aggregate) {
+            long count = ((Number) row.get("card_count")).longValue();
+            BigDecimal balance = decimal(row.get("total_balance"));
+            addToStatus(CardStatus.valueOf((String) row.get("status")), -count, balance.negate());
+            addToExpiry(monthOf(((Date) row.get("expiration_date")).toLocalDate()), -count);
+            total.add(count, balance);
+        }
+        return total;
+    }
+
+    private void addToStatus(CardStatus status, long count, BigDecimal balance) {
+        int slot = ThreadLocalRandom.current().nextInt(SLOTS);
+        requireUpdated(cardStatsRepository.addToStatus(status, slot, count, balance), "status " + status);
+    }
+
+    private void addToExpiry(LocalDate month, long count) {
+        int slot = ThreadLocalRandom.current().nextInt(SLOTS);
+        requireUpdated(cardStatsRepository.addToExpiry(month, slot, count), "month " + month);
+    }
+
+    private void addToUser(Long userId, long count, BigDecimal balance) {
+        requireUpdated(cardStatsRepository.addToUser(userId, count, balance), "user " + userId);
+    }
+
+    // Upsert всегда затрагивает строку; ноль значит, что счётчик потерян — откатываем транзакцию
+    private static void requireUpdated(int rows, String key) {
+        if (rows == 0) {
+            throw new IllegalStateException("Card stats counter was not updated: " + key);
+        }
+    }
+
+    private static LocalDate monthOf(LocalDate date) {
+        return date.withDayOfMonth(1);
+    }
+
+    private static BigDecimal balanceOf(Card card) {
+        return card.getBalance() != null ? card.getBalance() : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal decimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    private static final class Delta {
+        private long count;
+        private BigDecimal balance = BigDecimal.ZERO;
+
+        private void add(long count, BigDecimal balance) {
+            this.count += count;
+            this.balance = this.balance.add(balance);
+        }
+
+        private boolean isZero() {
+            return count == 0 && balance.signum() == 0;
+        }
+    }
+
+    private record ShardStats(List<Map<String, Object>> statusTotals, Map<LocalDate, Long> expiryCounts) {
+    }
+
+    private static final class Drift {
+        private final Map<CardStatus, Delta> status = new EnumMap<>(CardStatus.class);
+        private final Map<LocalDate, Delta> expiry = new HashMap<>();
+        private final Map<Long, Delta> users = new HashMap<>();
+
+        private boolean isEmpty() {
+            return status.isEmpty() && expiry.isEmpty() && users.isEmpty();
+        }
+    }
+}
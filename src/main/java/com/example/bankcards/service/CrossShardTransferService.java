@@ -0,0 +1,192 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardEventType;
+import com.example.bankcards.exception.BusinessRuleException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferIntentRepository;
+import com.example.bankcards.repository.TransferIntentRepository.Intent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.example.bankcards.repository.TransferIntentRepository.ABORTED;
+import static com.example.bankcards.repository.TransferIntentRepository.APPLIED;
+import static com.example.bankcards.repository.TransferIntentRepository.COMMITTED;
+import static com.example.bankcards.repository.TransferIntentRepository.CREDIT;
+import static com.example.bankcards.repository.TransferIntentRepository.DEBIT;
+import static com.example.bankcards.repository.TransferIntentRepository.PREPARED;
+
+/**
+ * Перевод между картами на разных шардах без распределённой транзакции.
+ * <ol>
+ *     <li>Подготовка, транзакция шарда отправителя: проверка баланса и лимитов, списание
+ *     и запись DEBIT/PREPARED в transfer_intents — атомарно.</li>
+ *     <li>Зачисление, транзакция шарда получателя: запись CREDIT/APPLIED с тем же id
+ *     и зачисление. Уже существующая запись CREDIT означает, что зачисление выполнено,
+ *     поэтому шаг можно повторять сколько угодно раз.</li>
+ *     <li>Завершение на шарде отправителя: PREPARED → COMMITTED. Если карты получателя
+ *     нет, PREPARED → ABORTED и возврат списанного.</li>
+ * </ol>
+ * Сбой между шагами оставляет запись PREPARED; {@link #recover()} повторяет шаги 2–3
+ * для зависших записей. Между шагами деньги уже списаны и ещё не зачислены:
+ * сумма балансов по всем шардам сходится после завершения перевода.
+ */
+@Service
+public class CrossShardTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(CrossShardTransferService.class);
+
+    private static final int RECOVERY_BATCH = 100;
+
+    private final CardRepository cardRepository;
+    private final TransferIntentRepository transferIntentRepository;
+    private final CardOutboxService cardOutboxService;
+    private final CardStatsService cardStatsService;
+    private final CardLimitService cardLimitService;
+    private final ShardRouter shardRouter;
+    private final long recoveryAfterMs;
+
+    public CrossShardTransferService(CardRepository cardRepository,
+                                     TransferIntentRepository transferIntentRepository,
+                                     CardOutboxService cardOutboxService,
+                                     CardStatsService cardStatsService,
+                                     CardLimitService cardLimitService,
+                                     ShardRouter shardRouter,
+                                     @Value("${sharding.recovery-after-ms:30000}") long recoveryAfterMs) {
+        this.cardRepository = cardRepository;
+        this.transferIntentRepository = transferIntentRepository;
+        this.cardOutboxService = cardOutboxService;
+        this.cardStatsService = cardStatsService;
+        this.cardLimitService = cardLimitService;
+        this.shardRouter = shardRouter;
+        this.recoveryAfterMs = recoveryAfterMs;
+    }
+
+    /**
+     * Вызывается вне транзакции шарда: каждый шаг открывает свою.
+     * Если после списания зачисление или завершение не удалось из-за недоступности шарда,
+     * метод завершается успешно — перевод будет завершён восстановлением, повтор запроса
+     * клиентом привёл бы к второму списанию.
+     */
+    public void transfer(Long fromCardId, Long toCardId, BigDecimal amount) {
+        // Ранний отказ без списания; удаление карты после проверки закрывается отменой в шаге 3
+        if (!shardRouter.inShard(shardRouter.shardOfId(toCardId), true, () -> cardRepository.existsById(toCardId))) {
+            throw NotFoundException.TARGET_CARD;
+        }
+        Intent intent = new Intent(UUID.randomUUID().toString(), fromCardId, toCardId, amount, Instant.now());
+        shardRouter.inShard(shardRouter.shardOfId(fromCardId), false, () -> {
+            debit(intent);
+            return null;
+        });
+
+        boolean credited;
+        try {
+            credited = shardRouter.inShard(shardRouter.shardOfId(toCardId), false, () -> credit(intent));
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Transfer {} is debited, credit is left to recovery", intent.id(), e);
+            return;
+        }
+        if (!credited) {
+            abort(intent);
+            throw NotFoundException.TARGET_CARD;
+        }
+        try {
+            commit(intent);
+        } catch (DataAccessException | TransactionException e) {
+            // деньги уже зачислены: восстановление найдёт запись CREDIT и переведёт PREPARED в COMMITTED
+            log.warn("Transfer {} is credited, commit is left to recovery", intent.id(), e);
+        }
+    }
+
+    // Завершение переводов, зависших после списания
+    @Scheduled(fixedDelayString = "${sharding.recovery-interval-ms:60000}")
+    public void recover() {
+        if (!shardRouter.isSharded()) {
+            return;
+        }
+        Instant before = Instant.now().minusMillis(recoveryAfterMs);
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            List<Intent> stale = shardRouter.inShard(shard, true,
+                    () -> transferIntentRepository.findStale(DEBIT, PREPARED, before, RECOVERY_BATCH));
+            for (Intent intent : stale) {
+                try {
+                    if (shardRouter.inShard(shardRouter.shardOfId(intent.toCardId()), false, () -> credit(intent))) {
+                        commit(intent);
+                    } else {
+                        abort(intent);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Recovery of transfer {} failed, will retry", intent.id(), e);
+                }
+            }
+        }
+    }
+
+    private void debit(Intent intent) {
+        Card from = cardRepository.findById(intent.fromCardId())
+                .orElseThrow(() -> NotFoundException.SOURCE_CARD);
+        if (from.getBalance().compareTo(intent.amount()) < 0) {
+            throw BusinessRuleException.INSUFFICIENT_FUNDS;
+        }
+        cardLimitService.reserve(intent.fromCardId(), intent.amount());
+        changeBalance(from, intent.amount().negate());
+        transferIntentRepository.insert(intent, DEBIT, PREPARED);
+    }
+
+    // false — карты получателя нет и зачисления не было
+    private boolean credit(Intent intent) {
+        if (transferIntentRepository.findState(intent.id()) != null) {
+            return true;
+        }
+        Optional<Card> to = cardRepository.findById(intent.toCardId());
+        if (to.isEmpty()) {
+            return false;
+        }
+        // Параллельное восстановление того же перевода дождётся этой вставки и получит 0
+        if (transferIntentRepository.insert(intent, CREDIT, APPLIED) == 0) {
+            return true;
+        }
+        changeBalance(to.get(), intent.amount());
+        return true;
+    }
+
+    private void commit(Intent intent) {
+        shardRouter.inShard(shardRouter.shardOfId(intent.fromCardId()), false,
+                () -> transferIntentRepository.updateState(intent.id(), PREPARED, COMMITTED));
+    }
+
+    // Возврат списанного вместе с резервом лимита карты отправителя
+    private void abort(Intent intent) {
+        shardRouter.inShard(shardRouter.shardOfId(intent.fromCardId()), false, () -> {
+            if (transferIntentRepository.updateState(intent.id(), PREPARED, ABORTED) == 0) {
+                return null;
+            }
+            cardRepository.findById(intent.fromCardId()).ifPresentOrElse(
+                    from -> {
+                        changeBalance(from, intent.amount());
+                        cardLimitService.release(intent.fromCardId(), intent.amount(), intent.createdAt());
+                    },
+                    () -> log.warn("Transfer {} aborted, source card {} no longer exists",
+                            intent.id(), intent.fromCardId()));
+            return null;
+        });
+    }
+
+    private void changeBalance(Card card, BigDecimal delta) {
+        card.setBalance(card.getBalance().add(delta));
+        cardOutboxService.record(card, CardEventType.BALANCE_CHANGED);
+        cardStatsService.onBalanceChanged(card, delta);
+    }
+}
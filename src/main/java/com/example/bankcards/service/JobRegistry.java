@@ -0,0 +1,42 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.NotFoundException;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Задачи одного сервиса в памяти экземпляра. Завершённые хранятся retention-ms,
+ * чтобы клиент успел запросить итог, затем удаляются purgeFinished.
+ */
+public class JobRegistry<J extends BackgroundJob> {
+
+    private final Map<UUID, J> jobs = new ConcurrentHashMap<>();
+    private final String notFoundMessage;
+    private final long retentionMs;
+
+    public JobRegistry(String notFoundMessage, long retentionMs) {
+        this.notFoundMessage = notFoundMessage;
+        this.retentionMs = retentionMs;
+    }
+
+    public J register(J job) {
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    public J get(UUID jobId) {
+        J job = jobs.get(jobId);
+        if (job == null) {
+            throw new NotFoundException(notFoundMessage);
+        }
+        return job;
+    }
+
+    public void purgeFinished() {
+        Instant before = Instant.now().minusMillis(retentionMs);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(before));
+    }
+}
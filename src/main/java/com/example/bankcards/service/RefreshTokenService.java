@@ -0,0 +1,172 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TokenResponse;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.exception.UnauthorizedException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.RevokedTokenIndex;
+import com.example.bankcards.util.JwtUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+
+@Service
+public class RefreshTokenService {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final RevokedTokenIndex revokedTokenIndex;
+    private final JwtUtil jwtUtil;
+    private final ShardRouter shardRouter;
+    private final long refreshExpirationMs;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserRepository userRepository,
+                               RevokedTokenIndex revokedTokenIndex,
+                               JwtUtil jwtUtil,
+                               ShardRouter shardRouter,
+                               @Value("${security.jwt.refresh-expiration:604800000}") long refreshExpirationMs) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.revokedTokenIndex = revokedTokenIndex;
+        this.jwtUtil = jwtUtil;
+        this.shardRouter = shardRouter;
+        this.refreshExpirationMs = refreshExpirationMs;
+    }
+
+    // Новая сессия после успешного входа
+    @Transactional
+    public TokenResponse login(UserDetails userDetails) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> NotFoundException.USER);
+
+        String refreshToken = newRefreshToken(user);
+        RefreshToken session = new RefreshToken();
+        session.setUser(user);
+        session.setTokenHash(hash(refreshToken));
+        session.setExpiresAt(Instant.now().plusMillis(refreshExpirationMs));
+        refreshTokenRepository.save(session);
+
+        return new TokenResponse(jwtUtil.generateToken(userDetails, session.getId()), refreshToken);
+    }
+
+    // Обмен refresh-токена на новую пару; старый refresh-токен перестаёт действовать.
+    // Ротация — условный UPDATE без блокировки строки: из параллельных обменов проходит один,
+    // проигравший считается повторным предъявлением, и сессия отзывается (отзыв коммитится вместе с отказом)
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public TokenResponse refresh(String refreshToken) {
+        RefreshToken session = findActive(refreshToken);
+        User user = session.getUser();
+
+        String rotated = newRefreshToken(user);
+        if (refreshTokenRepository.rotate(session.getId(), hash(refreshToken), hash(rotated)) == 0) {
+            refreshTokenRepository.revokeById(session.getId(), Instant.now());
+            revokedTokenIndex.add(session.getId());
+            throw UnauthorizedException.INVALID_REFRESH_TOKEN;
+        }
+
+        UserDetails userDetails = org.springframework.security.core.userdetails.User
+                .withUsername(user.getUsername())
+                .password(user.getPassword())
+                .roles(user.getRole().name())
+                .build();
+        return new TokenResponse(jwtUtil.generateToken(userDetails, session.getId()), rotated);
+    }
+
+    // Выход: отзывает сессию и все выданные в ней access-токены
+    @Transactional
+    public void revoke(String refreshToken) {
+        RefreshToken session = findActive(refreshToken);
+        session.setRevoked(true);
+        session.setRevokedAt(Instant.now());
+        revokedTokenIndex.add(session.getId());
+    }
+
+    @Transactional
+    public void revokeAllForUser(Long userId) {
+        if (refreshTokenRepository.revokeAllByUserId(userId, Instant.now()) > 0) {
+            // При шардировании индекс читает все шарды в своих транзакциях: отзыв должен быть закоммичен
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        revokedTokenIndex.rebuild();
+                    }
+                });
+            } else {
+                revokedTokenIndex.rebuild();
+            }
+        }
+    }
+
+    // Истёкшие сессии больше не нужны ни для refresh, ни для отзыва
+    @Scheduled(fixedDelayString = "${security.jwt.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        refreshTokenRepository.deleteExpiredBefore(Instant.now().minusMillis(jwtUtil.getExpirationMs()));
+    }
+
+    private RefreshToken findActive(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw UnauthorizedException.INVALID_REFRESH_TOKEN;
+        }
+        shardRouter.pin(shardOf(refreshToken));
+        RefreshToken session = refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .orElseThrow(() -> UnauthorizedException.INVALID_REFRESH_TOKEN);
+        if (session.isRevoked() || session.getUser() == null || session.getExpiresAt().isBefore(Instant.now())) {
+            throw UnauthorizedException.INVALID_REFRESH_TOKEN;
+        }
+        return session;
+    }
+
+    // При шардировании токен начинается с номера шарда пользователя: "<шард>.<случайная часть>"
+    private String newRefreshToken(User user) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        return shardRouter.isSharded() ? shardRouter.shardOfId(user.getId()) + "." + token : token;
+    }
+
+    // Токены без номера выданы до шардирования и лежат на шарде 0
+    private int shardOf(String refreshToken) {
+        int dot = refreshToken.indexOf('.');
+        if (!shardRouter.isSharded() || dot < 0) {
+            return 0;
+        }
+        try {
+            int shard = Integer.parseInt(refreshToken.substring(0, dot));
+            if (shard >= 0 && shard < shardRouter.getShardCount()) {
+                return shard;
+            }
+        } catch (NumberFormatException ignored) {
+            // номер шарда не число
+        }
+        throw UnauthorizedException.INVALID_REFRESH_TOKEN;
+    }
+
+    // В БД хранится только SHA-256 от refresh-токена
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ShardContext;
+import com.example.bankcards.config.ShardingProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Размещение пользователей и карт по шардам. Пользователь живёт на шарде
+ * hash(username) mod N, его карты и refresh-сессии — там же. Последовательности id
+ * на шарде k выдают только числа, сравнимые с k по модулю N (changeSet 11), поэтому
+ * шард записи определяется по её id без справочника.
+ * Без шардирования N = 1 и все методы работают с единственной БД.
+ */
+@Service
+public class ShardRouter {
+
+    private final int shardCount;
+    private final TransactionTemplate writeTx;
+    private final TransactionTemplate readOnlyTx;
+    private final ExecutorService scatterPool;
+
+    public ShardRouter(ShardingProperties properties, PlatformTransactionManager transactionManager) {
+        this.shardCount = properties.getShardCount();
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.writeTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTx.setReadOnly(true);
+        AtomicInteger threads = new AtomicInteger();
+        this.scatterPool = shardCount > 1
+                ? Executors.newFixedThreadPool(properties.getScatterThreads(), task -> {
+                    Thread thread = new Thread(task, "shard-scatter-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scatterPool != null) {
+            scatterPool.shutdownNow();
+        }
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int shardOfId(long id) {
+        return (int) Math.floorMod(id, (long) shardCount);
+    }
+
+    // String.hashCode задан спецификацией и одинаков во всех JVM
+    public int shardOfUsername(String username) {
+        return Math.floorMod(username.hashCode(), shardCount);
+    }
+
+    public boolean isSameShard(long firstId, long secondId) {
+        return shardOfId(firstId) == shardOfId(secondId);
+    }
+
+    // Закрепляет текущую транзакцию за шардом: запросы без ключа пойдут на него
+    public void pin(int shard) {
+        if (isSharded()) {
+            ShardContext.bind(shard, true);
+        }
+    }
+
+    // Действие в отдельной транзакции, закреплённой за шардом
+    public <T> T inShard(int shard, boolean readOnly, Supplier<T> action) {
+        return (readOnly ? readOnlyTx : writeTx).execute(status -> {
+            pin(shard);
+            return action.get();
+        });
+    }
+
+    /**
+     * Выполняет действие на каждом шарде параллельно, каждое в своей транзакции.
+     *
+     * @return результаты в порядке номеров шардов
+     */
+    public <T> List<T> onAllShards(boolean readOnly, IntFunction<T> action) {
+        if (!isSharded()) {
+            return List.of(inShard(0, readOnly, () -> action.apply(0)));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> inShard(target, readOnly, () -> action.apply(target)), scatterPool));
+        }
+        List<T> results = new ArrayList<>(shardCount);
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    // Разбивает пачку по шардам: индекс списка — номер шарда
+    public <T> List<List<T>> groupByUsername(Collection<T> items, Function<T, String> username) {
+        List<List<T>> groups = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            groups.add(new ArrayList<>());
+        }
+        for (T item : items) {
+            groups.get(shardOfUsername(username.apply(item))).add(item);
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkUserFormat;
+import com.example.bankcards.dto.BulkUserResponse;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.repository.UserBulkRepository;
+import com.example.bankcards.repository.UserBulkRepository.NewUser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Массовое заведение пользователей из потока CSV/NDJSON (POST /users/bulk).
+ * Тело читается построчно порциями по chunk-size, целиком в память не загружается.
+ * BCrypt — основная стоимость импорта, поэтому пароли порции хэшируются параллельно
+ * в собственном пуле по числу ядер (общий ForkJoinPool и потоки Tomcat не занимаются);
+ * уже существующие username отсеиваются одним запросом до хэширования.
+ */
+@Service
+public class UserBulkService {
+
+    private static final int MAX_ERRORS = 100;
+    private static final int MAX_USERNAME_LENGTH = 255;
+
+    private final UserBulkRepository userBulkRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+    private final int chunkSize;
+    private final ForkJoinPool hashPool;
+
+    public UserBulkService(UserBulkRepository userBulkRepository,
+                           PasswordEncoder passwordEncoder,
+                           ObjectMapper objectMapper,
+                           ShardRouter shardRouter,
+                           @Value("${user-bulk.chunk-size:1000}") int chunkSize,
+                           @Value("${user-bulk.hash-parallelism:0}") int hashParallelism) {
+        this.userBulkRepository = userBulkRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.objectMapper = objectMapper;
+        this.shardRouter = shardRouter;
+        this.chunkSize = chunkSize;
+        int parallelism = hashParallelism > 0 ? hashParallelism : Runtime.getRuntime().availableProcessors();
+        this.hashPool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("user-bulk-hash-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashPool.shutdownNow();
+    }
+
+    public BulkUserResponse importUsers(InputStream body, BulkUserFormat format) throws IOException {
+        BulkUserResponse response = new BulkUserResponse();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (format == BulkUserFormat.CSV && lineNumber == 1 && isCsvHeader(line))) {
+                continue;
+            }
+            response.setReceived(response.getReceived() + 1);
+            try {
+                chunk.add(format == BulkUserFormat.CSV ? parseCsv(line) : parseJson(line));
+            } catch (IllegalArgumentException e) {
+                response.setRejected(response.getRejected() + 1);
+                if (response.getErrors().size() < MAX_ERRORS) {
+                    response.getErrors().add("line " + lineNumber + ": " + e.getMessage());
+                }
+                continue;
+            }
+            if (chunk.size() == chunkSize) {
+                insert(chunk, response);
+                chunk.clear();
+            }
+        }
+        insert(chunk, response);
+        return response;
+    }
+
+    private void insert(List<Row> chunk, BulkUserResponse response) {
+        // Повтор внутри порции и уже заведённые пользователи не стоят хэширования
+        Map<String, Row> unique = new LinkedHashMap<>();
+        chunk.forEach(row -> unique.putIfAbsent(row.username(), row));
+        long duplicates = chunk.size() - unique.size();
+        // При шардировании пачка разбивается по шардам пользователей
+        for (List<String> usernames : shardRouter.groupByUsername(unique.keySet(), username -> username)) {
+            for (String existing : userBulkRepository.findExistingUsernames(usernames)) {
+                unique.remove(existing);
+                duplicates++;
+            }
+        }
+
+        List<NewUser> users = hashPool.submit(() -> unique.values().parallelStream()
+                .map(row -> new NewUser(row.username(), passwordEncoder.encode(row.password()), row.role()))
+                .toList()).join();
+
+        // Между проверкой и вставкой username мог занять параллельный импорт или регистрация
+        long created = 0;
+        for (List<NewUser> shardUsers : shardRouter.groupByUsername(users, NewUser::username)) {
+            for (int count : userBulkRepository.insertIgnoringDuplicates(shardUsers)) {
+                if (count == 0) {
+                    duplicates++;
+                } else {
+                    created++;
+                }
+            }
+        }
+        response.setCreated(response.getCreated() + created);
+        response.setDuplicates(response.getDuplicates() + duplicates);
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.trim().toLowerCase(Locale.ROOT).startsWith("username,");
+    }
+
+    private static Row parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() < 2 || fields.size() > 3) {
+            throw new IllegalArgumentException("expected username,password[,role]");
+        }
+        return row(fields.get(0), fields.get(1), fields.size() == 3 ? fields.get(2) : null);
+    }
+
+    private Row parseJson(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("malformed JSON");
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("expected JSON object");
+        }
+        return row(node.path("username").asText(null), node.path("password").asText(null),
+                node.path("role").asText(null));
+    }
+
+    private static Row row(String username, String password, String role) {
+        if (username == null || username.isBlank() || username.length() > MAX_USERNAME_LENGTH) {
+            throw new IllegalArgumentException("username is empty or too long");
+        }
+        if (password == null || password.isEmpty()) {
+            throw new IllegalArgumentException("password is empty");
+        }
+        Role parsedRole;
+        try {
+            parsedRole = role == null || role.isBlank() ? Role.USER : Role.valueOf(role.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown role " + role);
+        }
+        return new Row(username.trim(), password, parsedRole);
+    }
+
+    // Поля через запятую; поле в кавычках может содержать запятые, "" внутри — кавычка
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quote");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record Row(String username, String password, Role role) {
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.JobState;
+import com.example.bankcards.dto.UserDeletionStatus;
+import com.example.bankcards.entity.AuditAction;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Удаление пользователя вместе с картами набором bulk DELETE, без загрузки сущностей
+ * и каскада по User.cards. Пользователь с числом карт не больше async-threshold удаляется
+ * в одной транзакции. Более крупный удаляется фоновой задачей: карты — порциями по
+ * chunk-size в отдельных коротких транзакциях, затем остаток и сам пользователь.
+ * Каждая транзакция пишет события DELETED в outbox и аудит удалённых карт.
+ * Задачи выполняются по одной; их состояние хранится в памяти экземпляра.
+ * Все транзакции удаления закреплены за шардом пользователя.
+ */
+@Service
+public class UserDeletionService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDeletionService.class);
+
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+    private final CardStatsService cardStatsService;
+    private final CardOutboxService cardOutboxService;
+    private final AuditService auditService;
+    private final RefreshTokenService refreshTokenService;
+    private final ShardRouter shardRouter;
+    private final long asyncThreshold;
+    private final int chunkSize;
+    private final JobRegistry<Job> jobs;
+    private final ExecutorService executor;
+
+    private final Map<Long, Job> activeByUser = new ConcurrentHashMap<>();
+
+    public UserDeletionService(UserRepository userRepository,
+                               CardRepository cardRepository,
+                               CardStatsService cardStatsService,
+                               CardOutboxService cardOutboxService,
+                               AuditService auditService,
+                               RefreshTokenService refreshTokenService,
+                               ShardRouter shardRouter,
+                               @Value("${user-deletion.async-threshold:10000}") long asyncThreshold,
+                               @Value("${user-deletion.chunk-size:5000}") int chunkSize,
+                               @Value("${user-deletion.job-retention-ms:86400000}") long retentionMs) {
+        this.userRepository = userRepository;
+        this.cardRepository = cardRepository;
+        this.cardStatsService = cardStatsService;
+        this.cardOutboxService = cardOutboxService;
+        this.auditService = auditService;
+        this.refreshTokenService = refreshTokenService;
+        this.shardRouter = shardRouter;
+        this.asyncThreshold = asyncThreshold;
+        this.chunkSize = chunkSize;
+        this.jobs = new JobRegistry<>("Deletion job not found", retentionMs);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-deletion");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // уже удалённые порции закоммичены; прерванная задача повторяется новым DELETE /users/{id}
+        executor.shutdownNow();
+    }
+
+    // Возвращает COMPLETED без id задачи, если пользователь удалён сразу, иначе PENDING с id фоновой задачи
+    public UserDeletionStatus delete(Long userId) {
+        Job active = activeByUser.get(userId);
+        if (active != null) {
+            return active.toStatus();
+        }
+
+        long cards = cardRepository.countByOwnerId(userId);
+        if (cards <= asyncThreshold) {
+            Instant startedAt = Instant.now();
+            Integer deleted = inUserShard(userId, () -> deleteRemaining(userId));
+            UserDeletionStatus status = new UserDeletionStatus();
+            status.setUserId(userId);
+            status.setState(JobState.COMPLETED);
+            status.setTotalCards(cards);
+            status.setDeletedCards(deleted == null ? 0 : deleted);
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(Instant.now());
+            return status;
+        }
+
+        Job job = new Job(userId, cards);
+        Job existing = activeByUser.putIfAbsent(userId, job);
+        if (existing != null) {
+            return existing.toStatus();
+        }
+        jobs.register(job);
+        executor.execute(() -> run(job));
+        return job.toStatus();
+    }
+
+    public UserDeletionStatus getStatus(UUID jobId) {
+        return jobs.get(jobId).toStatus();
+    }
+
+    @Scheduled(fixedDelayString = "${user-deletion.cleanup-interval-ms:600000}")
+    public void purgeFinished() {
+        jobs.purgeFinished();
+    }
+
+    private void run(Job job) {
+        job.start();
+        try {
+            // пользователь не должен пользоваться картами, пока они удаляются
+            refreshTokenService.revokeAllForUser(job.userId);
+            int deleted;
+            do {
+                Integer chunk = inUserShard(job.userId, () -> deleteChunk(job.userId));
+                deleted = chunk == null ? 0 : chunk;
+                job.addProcessed(deleted);
+            } while (deleted == chunkSize && !Thread.currentThread().isInterrupted());
+
+            Integer rest = inUserShard(job.userId, () -> deleteRemaining(job.userId));
+            job.addProcessed(rest == null ? 0 : rest);
+            job.finish(JobState.COMPLETED, null);
+        } catch (RuntimeException e) {
+            log.error("User {} deletion failed after {} cards", job.userId, job.getProcessed(), e);
+            job.finish(JobState.FAILED, e.getMessage());
+        } finally {
+            activeByUser.remove(job.userId, job);
+        }
+    }
+
+    private <T> T inUserShard(Long userId, Supplier<T> action) {
+        return shardRouter.inShard(shardRouter.shardOfId(userId), false, action);
+    }
+
+    private int deleteChunk(Long userId) {
+        List<Long> ids = cardRepository.findIdsByOwnerId(userId, PageRequest.of(0, chunkSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        cardStatsService.onCardsDeleted(userId, ids);
+        recordDeleted(userId, ids);
+        return cardRepository.deleteByIds(ids);
+    }
+
+    // Оставшиеся карты и сам пользователь; строка user_card_stats удаляется каскадом
+    private int deleteRemaining(Long userId) {
+        refreshTokenService.revokeAllForUser(userId);
+        cardStatsService.onUserDeleted(userId);
+        recordDeleted(userId, cardRepository.findIdsByOwnerId(userId, Pageable.unpaged()));
+        int deleted = cardRepository.deleteByOwnerId(userId);
+        userRepository.deleteByIdDirect(userId);
+        return deleted;
+    }
+
+    private void recordDeleted(Long userId, List<Long> cardIds) {
+        if (!cardIds.isEmpty()) {
+            cardOutboxService.recordDeleted(userId, cardIds);
+            auditService.cardEvents(AuditAction.DELETE, cardIds);
+        }
+    }
+
+    private static final class Job extends BackgroundJob {
+        private final Long userId;
+        private final long totalCards;
+
+        private Job(Long userId, long totalCards) {
+            this.userId = userId;
+            this.totalCards = totalCards;
+        }
+
+        private UserDeletionStatus toStatus() {
+            UserDeletionStatus status = new UserDeletionStatus();
+            status.setJobId(getId());
+            status.setUserId(userId);
+            status.setState(getState());
+            status.setTotalCards(totalCards);
+            status.setDeletedCards(getProcessed());
+            status.setError(getError());
+            status.setStartedAt(getStartedAt());
+            status.setFinishedAt(getFinishedAt());
+            return status;
+        }
+    }
+}
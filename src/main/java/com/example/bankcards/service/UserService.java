@@ -1,61 +1,163 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BulkUserFormat;
+import com.example.bankcards.dto.BulkUserResponse;
 import com.example.bankcards.dto.RegisterRequest;
+import com.example.bankcards.dto.UserDeletionStatus;
+import com.example.bankcards.dto.UserSearchMode;
+import com.example.bankcards.dto.UserSearchResponse;
+import com.example.bankcards.dto.UserSummary;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.BusinessRuleException;
+import com.example.bankcards.exception.ConflictException;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserBulkRepository;
+import com.example.bankcards.repository.UserBulkRepository.NewUser;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.ETags;
+import com.example.bankcards.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
 
 @Service
 public class UserService {
 
+    private static final int MAX_SEARCH_PAGE_SIZE = 50;
+    // Короче trigram-индекс не используется, и поиск подстроки превращается в полный скан
+    private static final int MIN_CONTAINS_LENGTH = 3;
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserDeletionService userDeletionService;
+    private final CardRepository cardRepository;
+    private final UserBulkRepository userBulkRepository;
+    private final UserBulkService userBulkService;
+    // Одновременные GET /users/me одного пользователя с одним ETag читают его один раз
+    private final EntityManager entityManager;
+    private final SingleFlight<String, User> currentUserFlight;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       UserDeletionService userDeletionService, CardRepository cardRepository,
+                       UserBulkRepository userBulkRepository, UserBulkService userBulkService,
+                       EntityManager entityManager, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userDeletionService = userDeletionService;
+        this.cardRepository = cardRepository;
+        this.userBulkRepository = userBulkRepository;
+        this.userBulkService = userBulkService;
+        this.entityManager = entityManager;
+        this.currentUserFlight = new SingleFlight<String, User>().bindTo(meterRegistry, "current-user");
     }
 
     // Создание пользователя (ADMIN)
     public User createUser(User user) {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        try {
+            return userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw ConflictException.USERNAME_TAKEN;
+        }
+    }
+
+    // Массовое заведение пользователей из CSV/NDJSON (ADMIN)
+    public BulkUserResponse importUsers(InputStream body, BulkUserFormat format) throws IOException {
+        return userBulkService.importUsers(body, format);
     }
 
     // Список пользователей (ADMIN)
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
-    // Удаление пользователя (ADMIN)
-    public void deleteUser(Long id) {
-        userRepository.deleteById(id);
+    // Поиск пользователей по началу или части username (ADMIN)
+    @Transactional(readOnly = true)
+    public UserSearchResponse searchUsers(String query, UserSearchMode mode, int page, int size) {
+        String q = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty()) {
+            throw new RuntimeException("Search query must not be empty");
+        }
+        if (mode == UserSearchMode.CONTAINS && q.length() < MIN_CONTAINS_LENGTH) {
+            throw new RuntimeException("Substring search requires at least " + MIN_CONTAINS_LENGTH + " characters");
+        }
+        if (page < 0 || size < 1) {
+            throw BusinessRuleException.INVALID_PAGE;
+        }
+        int pageSize = Math.min(size, MAX_SEARCH_PAGE_SIZE);
+
+        String escaped = escapeLike(q);
+        String pattern = mode == UserSearchMode.CONTAINS ? "%" + escaped + "%" : escaped + "%";
+        Slice<UserSummary> result = userRepository.searchByUsername(pattern, PageRequest.of(page, pageSize));
+        return new UserSearchResponse(result.getContent(), page, pageSize, result.hasNext());
+    }
+
+    // Удаление пользователя (ADMIN); пользователь с большим числом карт удаляется в фоне
+    public UserDeletionStatus deleteUser(Long id) {
+        return userDeletionService.delete(id);
+    }
+
+    // Состояние фонового удаления пользователя (ADMIN)
+    public UserDeletionStatus getDeletionStatus(UUID jobId) {
+        return userDeletionService.getStatus(jobId);
     }
 
     // Получение текущего пользователя
+    @Transactional(readOnly = true)
     public User getCurrentUser(String username) {
         return userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+                .orElseThrow(() -> NotFoundException.USER);
+    }
+
+    /**
+     * Текущий пользователь для ответа с ETag, посчитанным до загрузки.
+     * Одновременные вызовы с тем же username и ETag получают результат одного чтения;
+     * ETag в ключе не даёт отдать с новым ETag данные, прочитанные до изменения.
+     */
+    @Transactional(readOnly = true)
+    public User getCurrentUser(String username, String etag) {
+        return currentUserFlight.execute(username + '\n' + etag, () -> {
+            User user = getCurrentUser(username);
+            // Результат сериализуют потоки других запросов: карты загружаются здесь, а пользователь
+            // отсоединяется от сессии лидера вместе с ними (каскад DETACH)
+            Hibernate.initialize(user.getCards());
+            entityManager.detach(user);
+            return user;
+        });
+    }
+
+    // ETag текущего пользователя: его версия и версии его карт, входящих в представление
+    @Transactional(readOnly = true)
+    public String getCurrentUserEtag(String username) {
+        User user = getCurrentUser(username);
+        return ETags.user(user.getId(), user.getVersion(), cardRepository.findVersionsByOwnerId(user.getId()));
     }
 
-    // Регистрация нового пользователя
+    // Регистрация нового пользователя: один insert, занятое имя отсекает уникальный индекс
     public void register(RegisterRequest request) {
-        // Проверка: существует ли пользователь с таким username
-        if (userRepository.findByUsername(request.getUsername()).isPresent()) {
-            throw new RuntimeException("Пользователь с таким именем уже существует");
+        NewUser user = new NewUser(request.getUsername(), passwordEncoder.encode(request.getPassword()),
+                Role.USER); // по умолчанию роль USER
+        if (userBulkRepository.insertIgnoringDuplicates(List.of(user))[0] == 0) {
+            throw ConflictException.USERNAME_TAKEN;
         }
+    }
 
-        User user = new User();
-        user.setUsername(request.getUsername());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
-        user.setRole(Role.USER); // по умолчанию роль USER
-
-        userRepository.save(user);
+    // Символы шаблона LIKE во вводе ищутся буквально
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 }
-
-
-
@@ -0,0 +1,247 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.LoginRequest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.CardNumberEncryptor;
+import com.example.bankcards.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Прогрев перед приёмом трафика: шифрование номеров карт, JWT, BCrypt, Jackson
+ * для CardResponse/User и типовые запросы репозиториев на синтетических данных.
+ * ApplicationRunner выполняется до публикации ReadinessState.ACCEPTING_TRAFFIC,
+ * поэтому /actuator/health/readiness становится UP только после прогрева.
+ * Запросы идут из нескольких потоков в read-only и обычных транзакциях: так
+ * открываются соединения обоих пулов Hikari. Ничего не пишет в БД.
+ * Для каждой задачи в лог и в таймер app.warmup.call пишется время первого
+ * (холодного) вызова и среднее после прогрева, общая длительность — в app.warmup.duration.
+ */
+@Service
+@ConditionalOnProperty(prefix = "warmup", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class WarmupService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmupService.class);
+
+    private static final String USERNAME = "__warmup__";
+    private static final String CARD_NUMBER = "4000123412341234";
+    private static final int SAMPLE_SIZE = 20;
+
+    private final CardNumberEncryptor encryptor = new CardNumberEncryptor();
+    private final JwtUtil jwtUtil;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final TransactionTemplate tx;
+    private final MeterRegistry meterRegistry;
+    private final int iterations;
+    private final int queryIterations;
+    private final int passwordIterations;
+    private final int threads;
+    private final long maxDurationMs;
+
+    private final UserDetails userDetails = org.springframework.security.core.userdetails.User
+            .withUsername(USERNAME).password("").roles(Role.USER.name()).build();
+    private final List<Card> cards = sampleCards();
+    private final String loginJson = "{\"username\":\"" + USERNAME + "\",\"password\":\"secret\"}";
+    private String passwordHash;
+
+    public WarmupService(JwtUtil jwtUtil,
+                         PasswordEncoder passwordEncoder,
+                         ObjectMapper objectMapper,
+                         CardRepository cardRepository,
+                         UserRepository userRepository,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${warmup.iterations:5000}") int iterations,
+                         @Value("${warmup.query-iterations:200}") int queryIterations,
+                         @Value("${warmup.password-iterations:4}") int passwordIterations,
+                         @Value("${warmup.threads:4}") int threads,
+                         @Value("${warmup.max-duration-ms:15000}") long maxDurationMs) {
+        this.jwtUtil = jwtUtil;
+        this.passwordEncoder = passwordEncoder;
+        this.objectMapper = objectMapper;
+        this.cardRepository = cardRepository;
+        this.userRepository = userRepository;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.tx = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.iterations = iterations;
+        this.queryIterations = queryIterations;
+        this.passwordIterations = passwordIterations;
+        this.threads = Math.max(1, threads);
+        this.maxDurationMs = maxDurationMs;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(maxDurationMs);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            warm("card-number-cipher", iterations, this::cipher, pool, deadline);
+            warm("jwt", iterations, this::jwt, pool, deadline);
+            warm("jackson", iterations, this::json, pool, deadline);
+            warm("password-encoder", passwordIterations, this::password, pool, deadline);
+            warm("repositories", queryIterations, this::queries, pool, deadline);
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        meterRegistry.timer("app.warmup.duration").record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Warm-up finished in {} ms", TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    // Холодный вызов, затем итерации в threads потоках, затем замер уже прогретого вызова.
+    // Ошибка задачи (например, БД ещё недоступна) не мешает старту: прогрев — не проверка здоровья
+    private void warm(String task, int count, Runnable operation, ExecutorService pool, long deadline) {
+        if (count <= 0 || System.nanoTime() >= deadline) {
+            return;
+        }
+        try {
+            long first = time(operation);
+            AtomicInteger remaining = new AtomicInteger(count - 1);
+            List<Future<?>> workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                workers.add(pool.submit(() -> {
+                    while (remaining.getAndDecrement() > 0 && System.nanoTime() < deadline) {
+                        operation.run();
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            int samples = Math.min(SAMPLE_SIZE, count);
+            long total = 0;
+            for (int i = 0; i < samples; i++) {
+                total += time(operation);
+            }
+            long warm = total / samples;
+            record(task, "first", first);
+            record(task, "warm", warm);
+            log.info("Warm-up {}: first call {} us, warm call {} us ({} calls)",
+                    task, first / 1000, warm / 1000, count);
+        } catch (Exception e) {
+            log.warn("Warm-up {} failed: {}", task, e.toString());
+        }
+    }
+
+    private void record(String task, String phase, long nanos) {
+        Timer.builder("app.warmup.call")
+                .tag("task", task)
+                .tag("phase", phase)
+                .register(meterRegistry)
+                .record(Duration.ofNanos(nanos));
+    }
+
+    private static long time(Runnable operation) {
+        long start = System.nanoTime();
+        operation.run();
+        return System.nanoTime() - start;
+    }
+
+    // --- операции ---
+
+    private void cipher() {
+        encryptor.convertToEntityAttribute(encryptor.convertToDatabaseColumn(CARD_NUMBER));
+    }
+
+    private void jwt() {
+        Claims claims = jwtUtil.parseClaims(jwtUtil.generateToken(userDetails, 0L));
+        jwtUtil.toUserDetails(claims);
+        jwtUtil.extractSessionId(claims);
+    }
+
+    private void json() {
+        try {
+            objectMapper.writeValueAsBytes(cards.stream().map(CardResponse::of).toList());
+            objectMapper.writeValueAsBytes(cards.get(0).getOwner());
+            objectMapper.readValue(loginJson, LoginRequest.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void password() {
+        String hash = passwordHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode("secret");
+            passwordHash = hash;
+        }
+        passwordEncoder.matches("secret", hash);
+    }
+
+    // Несуществующие id и username: запросы и планы те же, что у боевых, но данных не трогают
+    private void queries() {
+        readOnlyTx.executeWithoutResult(status -> {
+            userRepository.findByUsername(USERNAME);
+            cardRepository.findById(-1L);
+            cardRepository.findVersionsByOwnerId(-1L);
+            userRepository.searchByUsername(USERNAME + "%", PageRequest.of(0, SAMPLE_SIZE));
+        });
+        tx.executeWithoutResult(status -> {
+            userRepository.findByUsername(USERNAME);
+            cardRepository.existsById(-1L);
+        });
+    }
+
+    // Карты с владельцем, у которого список карт пуст: без циклов при сериализации
+    private static List<Card> sampleCards() {
+        User owner = new User();
+        owner.setId(-1L);
+        owner.setUsername(USERNAME);
+        owner.setPassword("");
+        owner.setRole(Role.USER);
+        List<Card> cards = new ArrayList<>(SAMPLE_SIZE);
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            Card card = new Card();
+            card.setId((long) -i - 1);
+            card.setCardNumber(CARD_NUMBER);
+            card.setOwner(owner);
+            card.setExpirationDate(LocalDate.of(2030, 1, 1));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(new BigDecimal("1000.00"));
+            cards.add(card);
+        }
+        return cards;
+    }
+}
@@ -10,7 +10,7 @@ import java.util.Base64;
 public class CardNumberEncryptor implements AttributeConverter<String, String> {
 
     private static final String ALGO = "AES";
-    private static final byte[] KEY = "MySuperSecretKey!".getBytes(); // 16 байт
+    private static final byte[] KEY = "MySuperSecretKey".getBytes(); // 16 байт
 
     @Override
     public String convertToDatabaseColumn(String attribute) {
@@ -0,0 +1,83 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.dto.CardVersion;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Слабые ETag из столбцов version. Для одной сущности — "id-version",
+ * для списка — хэш пар (id, version), поэтому добавление, удаление и изменение
+ * любой карты меняют ETag списка.
+ * Тег слабый: одна версия ресурса отдаётся в JSON и CBOR, с gzip и без него, а Tomcat
+ * не сжимает ответы со строгим ETag.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String card(Long id, Long version) {
+        return "W/\"c" + id + "-" + version + "\"";
+    }
+
+    // versions должны быть отсортированы по id
+    public static String cards(List<CardVersion> versions) {
+        return "W/\"l" + digest(null, null, versions) + "\"";
+    }
+
+    // Представление пользователя включает его карты, поэтому учитываются и их версии
+    public static String user(Long id, Long version, List<CardVersion> cards) {
+        return "W/\"u" + digest(id, version, cards) + "\"";
+    }
+
+    // If-None-Match: список ETag через запятую или "*"; сравнение слабое (RFC 9110, 13.1.2)
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || opaque(value).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static String digest(Long id, Long version, List<CardVersion> cards) {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(16 * 256);
+        if (id != null) {
+            buffer.putLong(id).putLong(version);
+        }
+        for (CardVersion card : cards) {
+            if (!buffer.hasRemaining()) {
+                digest.update(buffer.flip());
+                buffer.clear();
+            }
+            buffer.putLong(card.id()).putLong(card.version());
+        }
+        digest.update(buffer.flip());
+        digest.update(Integer.toString(cards.size()).getBytes(StandardCharsets.US_ASCII));
+        // 128 бит достаточно, чтобы случайное совпадение было невозможно на практике
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.bankcards.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одинаковых одновременных вычислений: первый вызов с ключом выполняет его,
+ * остальные, пришедшие до его завершения, ждут и получают тот же результат или то же исключение.
+ * Запись о вычислении удаляется до публикации результата, поэтому после завершения
+ * новый вызов всегда выполняет вычисление заново — готовые результаты не хранятся.
+ * Результат общий для всех ожидавших: вызывающие должны только читать его.
+ * Вычисление не должно повторно входить в тот же SingleFlight с тем же ключом.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public V execute(K key, Supplier<V> computation) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        executed.increment();
+        try {
+            V value = computation.get();
+            flights.remove(key, flight);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    // Доля вызовов, получивших чужой результат, с момента старта
+    public double getCoalescingRatio() {
+        long shared = coalesced.sum();
+        long total = executed.sum() + shared;
+        return total == 0 ? 0 : (double) shared / total;
+    }
+
+    /**
+     * Метрики: app.coalescing.calls{operation, role=leader|follower} и app.coalescing.ratio{operation}.
+     */
+    public SingleFlight<K, V> bindTo(MeterRegistry registry, String operation) {
+        FunctionCounter.builder("app.coalescing.calls", this, SingleFlight::getExecuted)
+                .description("Calls that executed the computation")
+                .tag("operation", operation)
+                .tag("role", "leader")
+                .register(registry);
+        FunctionCounter.builder("app.coalescing.calls", this, SingleFlight::getCoalesced)
+                .description("Calls that shared an in-flight computation")
+                .tag("operation", operation)
+                .tag("role", "follower")
+                .register(registry);
+        Gauge.builder("app.coalescing.ratio", this, SingleFlight::getCoalescingRatio)
+                .description("Share of calls served by an in-flight computation")
+                .tag("operation", operation)
+                .register(registry);
+        return this;
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.bankcards.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Сумма за скользящее окно из {@code size} последних корзин (часов, суток).
+ * Каждый слот кольца — один long: номер корзины в старших битах и сумма в младших,
+ * поэтому смена корзины и прибавление выполняются одним CAS без блокировок.
+ * Все добавления идут в слот текущей корзины, и CAS по нему упорядочивает
+ * параллельные проверки лимита: двое не могут одновременно пройти по одному остатку.
+ */
+public class SlidingWindowCounter {
+
+    private static final int AMOUNT_BITS = 40;
+    private static final long AMOUNT_MASK = (1L << AMOUNT_BITS) - 1;
+
+    private final AtomicLongArray slots;
+    private final int size;
+
+    public SlidingWindowCounter(int size) {
+        this.size = size;
+        this.slots = new AtomicLongArray(size);
+    }
+
+    // Сумма по корзинам (bucket - size, bucket]
+    public long sum(long bucket) {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += amountInWindow(slots.get(i), bucket);
+        }
+        return sum;
+    }
+
+    /**
+     * Прибавляет amount к корзине bucket, если сумма окна вместе с ним не превысит limit.
+     *
+     * @return false, если лимит был бы превышен (счётчик не меняется)
+     */
+    public boolean tryAdd(long bucket, long amount, long limit) {
+        int index = index(bucket);
+        while (true) {
+            long current = slots.get(index);
+            if (bucketOf(current) > bucket) {
+                // корзина уже вне окна (часы отстали или запись из прошлого): учитывать нечего
+                return true;
+            }
+            long currentAmount = bucketOf(current) == bucket ? current & AMOUNT_MASK : 0;
+            long others = 0;
+            for (int i = 0; i < size; i++) {
+                if (i != index) {
+                    others += amountInWindow(slots.get(i), bucket);
+                }
+            }
+            if (others + currentAmount + amount > limit) {
+                return false;
+            }
+            if (slots.compareAndSet(index, current, pack(bucket, currentAmount + amount))) {
+                return true;
+            }
+        }
+    }
+
+    // Без проверки лимита: восстановление из БД
+    public void add(long bucket, long amount) {
+        tryAdd(bucket, amount, Long.MAX_VALUE);
+    }
+
+    // Возврат резерва откатившейся операции; если корзина уже вытеснена, возвращать нечего
+    public void subtract(long bucket, long amount) {
+        int index = index(bucket);
+        while (true) {
+            long current = slots.get(index);
+            if (bucketOf(current) != bucket) {
+                return;
+            }
+            long remaining = Math.max(0, (current & AMOUNT_MASK) - amount);
+            if (slots.compareAndSet(index, current, pack(bucket, remaining))) {
+                return;
+            }
+        }
+    }
+
+    private long amountInWindow(long slot, long bucket) {
+        long slotBucket = bucketOf(slot);
+        return slotBucket <= bucket && slotBucket > bucket - size ? slot & AMOUNT_MASK : 0;
+    }
+
+    private int index(long bucket) {
+        return (int) Math.floorMod(bucket, (long) size);
+    }
+
+    private static long bucketOf(long slot) {
+        return slot >>> AMOUNT_BITS;
+    }
+
+    private static long pack(long bucket, long amount) {
+        return bucket << AMOUNT_BITS | Math.min(amount, AMOUNT_MASK);
+    }
+}
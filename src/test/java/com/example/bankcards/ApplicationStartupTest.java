@@ -0,0 +1,76 @@
+package com.example.bankcards;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springdoc.webmvc.api.OpenApiResource;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Время до готовности приложения в профиле prod (H2 вместо PostgreSQL, без Liquibase и springdoc).
+// Бюджет с запасом на медленные CI-машины: -Dstartup.budget-ms=... переопределяет его.
+class ApplicationStartupTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ApplicationStartupTest.class);
+
+    private static final long BUDGET_MS = Long.getLong("startup.budget-ms", 45_000);
+
+    private static final String URL = "jdbc:h2:mem:startup;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    @Test
+    void prodProfile_startsWithinBudget() throws Exception {
+        migrate();
+        AtomicLong readyAt = new AtomicLong();
+        long startedAt = System.nanoTime();
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .profiles("prod")
+                .web(WebApplicationType.SERVLET)
+                .listeners((ApplicationListener<ApplicationReadyEvent>) event -> readyAt.set(System.nanoTime()))
+                // аргументы командной строки перекрывают application.yml и application-prod.yml
+                .run("--server.port=0",
+                        "--spring.main.banner-mode=off",
+                        "--spring.datasource.url=" + URL,
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        // без кэша второго уровня: закрытие контекста закрыло бы общий с другими тестами JCache
+                        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                        "--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                        // бюджет — на сам старт; прогрев ограничен отдельно warmup.max-duration-ms
+                        "--warmup.enabled=false")) {
+
+            long elapsedMs = (readyAt.get() - startedAt) / 1_000_000;
+            log.info("Time to ready (prod profile): {} ms, budget {} ms", elapsedMs, BUDGET_MS);
+
+            assertTrue(readyAt.get() > 0, "ApplicationReadyEvent was not published");
+            assertEquals(0, context.getBeanNamesForType(SpringLiquibase.class).length);
+            assertEquals(0, context.getBeanNamesForType(OpenApiResource.class).length);
+            assertTrue(elapsedMs < BUDGET_MS,
+                    "Startup took " + elapsedMs + " ms, budget is " + BUDGET_MS + " ms");
+        }
+    }
+
+    // Схема накатывается до старта, как сервисом migrate в docker-compose.yml
+    private static void migrate() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(URL);
+        dataSource.setUser("sa");
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/migration/changelog-master.yaml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Кодирование списка карт (GET /cards) в JSON и CBOR, без сжатия и с gzip:
+ * то же тело, что отдаёт эндпоинт (CardResponse с маской номера и именем владельца).
+ * Размеры тел пишутся в лог при подготовке, время кодирования — в отчёте JMH.
+ * Запуск: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CardEncoding
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CardEncodingBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(CardEncodingBenchmark.class);
+
+    private static final int OWNERS = 100;
+
+    @Param({"1000"})
+    private int cards;
+
+    private ObjectMapper json;
+    private ObjectMapper cbor;
+    private List<CardResponse> listing;
+
+    @Setup
+    public void setUp() throws IOException {
+        // те же настройки, что у ObjectMapper Spring Boot и MessageConvertersConfig
+        json = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        cbor = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .factory(new CBORFactory())
+                .build();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // ответ администратору: карты разных владельцев
+        List<User> owners = new ArrayList<>(OWNERS);
+        for (int i = 0; i < OWNERS; i++) {
+            User owner = new User();
+            owner.setId(1_000L + i);
+            owner.setUsername("user-" + i);
+            owner.setRole(Role.USER);
+            owners.add(owner);
+        }
+        listing = new ArrayList<>(cards);
+        for (int i = 0; i < cards; i++) {
+            Card card = new Card();
+            card.setOwner(owners.get(i % OWNERS));
+            card.setId(100_000L + i);
+            card.setCardNumber(String.format("4%015d", random.nextLong(1_000_000_000_000_000L)));
+            card.setExpirationDate(LocalDate.now().plusDays(random.nextInt(1500)));
+            card.setStatus(i % 10 == 0 ? CardStatus.BLOCKED : CardStatus.ACTIVE);
+            card.setBalance(BigDecimal.valueOf(random.nextLong(10_000_000), 2));
+            listing.add(CardResponse.of(card));
+        }
+
+        log.info("{} cards: json {} B (gzip {} B), cbor {} B (gzip {} B)", cards,
+                json(), jsonGzip(), cbor(), cborGzip());
+    }
+
+    @Benchmark
+    public int json() throws IOException {
+        return json.writeValueAsBytes(listing).length;
+    }
+
+    @Benchmark
+    public int cbor() throws IOException {
+        return cbor.writeValueAsBytes(listing).length;
+    }
+
+    @Benchmark
+    public int jsonGzip() throws IOException {
+        return gzip(json);
+    }
+
+    @Benchmark
+    public int cborGzip() throws IOException {
+        return gzip(cbor);
+    }
+
+    // Как при server.compression: конвертер пишет прямо в gzip-поток ответа
+    private int gzip(ObjectMapper mapper) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            mapper.writeValue(out, listing);
+        }
+        return bytes.size();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.exception.BusinessRuleException;
+import com.example.bankcards.exception.DomainException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отказ «Insufficient funds» на глубине стека, как у запроса в Tomcat + Spring Security + Spring MVC + AOP
+ * транзакций (100+ кадров): прежний RuntimeException с телом ответа, собираемым в обработчике,
+ * против BusinessRuleException без стека и с готовым телом.
+ * Запуск: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=DomainException
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DomainExceptionBenchmark {
+
+    @Param({"20", "150"})
+    private int depth;
+
+    @Benchmark
+    public Map<String, String> runtimeException() {
+        try {
+            return call(depth, false);
+        } catch (RuntimeException ex) {
+            return Map.of("error", ex.getMessage());
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> domainException() {
+        try {
+            return call(depth, true);
+        } catch (DomainException ex) {
+            return ex.getBody();
+        }
+    }
+
+    private static Map<String, String> call(int depth, boolean domain) {
+        if (depth > 0) {
+            return call(depth - 1, domain);
+        }
+        if (domain) {
+            throw BusinessRuleException.INSUFFICIENT_FUNDS;
+        }
+        throw new RuntimeException("Insufficient funds");
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Маршрутизация на реплику вместе с кэшем второго уровня: строки реплики в кэш не попадают.
+// Реплика — та же H2-база, проверяется только то, кто пополняет кэш
+@DataJpaTest(properties = {"datasource-routing.enabled=true", "datasource-routing.read-your-writes-ms=60000",
+        "spring.datasource.url=jdbc:h2:mem:routing-cache;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver", "spring.datasource.username=sa",
+        "datasource-routing.replica.jdbc-url=jdbc:h2:mem:routing-cache;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "datasource-routing.replica.driver-class-name=org.h2.Driver", "datasource-routing.replica.username=sa"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DataSourceRoutingConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReplicaCacheTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate writeTx;
+    private TransactionTemplate readOnlyTx;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        writeTx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        userId = writeTx.execute(status -> {
+            User user = new User();
+            user.setUsername("replica-user-" + System.nanoTime());
+            user.setPassword("secret");
+            user.setRole(Role.USER);
+            return userRepository.save(user).getId();
+        });
+        // кэш общий для контекстов тестов с разными базами
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void replicaReads_doNotPopulateCache_primaryReadsDo() {
+        readOnlyTx.executeWithoutResult(status -> assertTrue(userRepository.findById(userId).isPresent()));
+        assertFalse(entityManagerFactory.getCache().contains(User.class, userId));
+
+        writeTx.executeWithoutResult(status -> assertTrue(userRepository.findById(userId).isPresent()));
+        assertTrue(entityManagerFactory.getCache().contains(User.class, userId));
+    }
+
+    @Test
+    void readYourWritesReads_goToPrimary_andPopulateCache() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("writer", null));
+        writeTx.executeWithoutResult(status -> userRepository.findById(userId)
+                .ifPresent(user -> user.setRole(Role.ADMIN)));
+        entityManagerFactory.getCache().evictAll();
+
+        readOnlyTx.executeWithoutResult(status -> assertTrue(userRepository.findById(userId).isPresent()));
+        assertTrue(entityManagerFactory.getCache().contains(User.class, userId));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// GET /cards через настоящий Tomcat: сжатие ответа и ETag
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:http;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "warmup.enabled=false"})
+class CardControllerHttpTest {
+
+    private static final String PASSWORD = "secret-password";
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CardService cardService;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private String token;
+    private String cardNumber;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        User admin = new User();
+        admin.setUsername("http-admin-" + System.nanoTime());
+        admin.setPassword(passwordEncoder.encode(PASSWORD));
+        admin.setRole(Role.ADMIN);
+        admin = userRepository.save(admin);
+        // тело больше server.compression.min-response-size
+        for (int i = 0; i < 30; i++) {
+            Card card = new Card();
+            card.setCardNumber(String.format("4000%012d", System.nanoTime() % 1_000_000_000_000L));
+            card.setExpirationDate(LocalDate.now().plusYears(2));
+            card.setBalance(new BigDecimal("10.00"));
+            cardService.createCard(card, admin.getId());
+            cardNumber = card.getCardNumber();
+        }
+        HttpResponse<String> login = client.send(HttpRequest.newBuilder(uri("/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + admin.getUsername() + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, login.statusCode(), login.body());
+        token = objectMapper.readTree(login.body()).get("accessToken").asText();
+    }
+
+    @Test
+    void cards_areGzipped_andRevalidatedWithWeakEtag() throws Exception {
+        HttpResponse<byte[]> response = client.send(get("/cards")
+                .header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        String etag = response.headers().firstValue("ETag").orElseThrow();
+        assertTrue(etag.startsWith("W/"), etag);
+        // тело зависит от Accept (JSON или CBOR), Tomcat дописывает accept-encoding
+        assertTrue(response.headers().allValues("Vary").stream()
+                .anyMatch(vary -> vary.toLowerCase(Locale.ROOT).matches(".*\\baccept\\b(?!-).*")));
+        JsonNode cards = objectMapper.readTree(gunzip(response.body()));
+        assertTrue(cards.size() >= 30);
+
+        HttpResponse<byte[]> notModified = client.send(get("/cards")
+                .header("Accept-Encoding", "gzip").header("If-None-Match", etag).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(304, notModified.statusCode());
+    }
+
+    @Test
+    void responses_containNeitherPasswordHashNorFullCardNumber() throws Exception {
+        for (String path : new String[]{"/cards", "/users/me"}) {
+            HttpResponse<String> response = client.send(get(path).build(), HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode(), path);
+            assertFalse(response.body().contains("password"), path + ": " + response.body());
+            assertFalse(response.body().contains("$2a$"), path);
+            assertFalse(response.body().contains(cardNumber), path);
+        }
+        JsonNode cards = objectMapper.readTree(client.send(get("/cards").build(),
+                HttpResponse.BodyHandlers.ofString()).body());
+        String masked = "**** **** **** " + cardNumber.substring(12);
+        assertTrue(cards.findValuesAsText("maskedCardNumber").contains(masked));
+        assertTrue(cards.get(0).has("ownerUsername"));
+        assertFalse(cards.get(0).has("owner"));
+    }
+
+    @Test
+    void unknownRefreshToken_isUnauthorized() throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/auth/refresh"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"refreshToken\":\"unknown-token\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(401, response.statusCode());
+        assertEquals("Invalid refresh token", objectMapper.readTree(response.body()).get("error").asText());
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(uri(path)).header("Authorization", "Bearer " + token).GET();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.bankcards.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Доменные исключения отдают свой статус и готовое тело {"error": ...}, прочие RuntimeException — 400
+class GlobalExceptionHandlerTest {
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new FailingController())
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+
+    @Test
+    void notFound_returns404WithMessage() throws Exception {
+        mockMvc.perform(get("/not-found"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().json("{\"error\":\"Card not found\"}", true));
+    }
+
+    @Test
+    void conflict_returns409WithMessage() throws Exception {
+        mockMvc.perform(get("/conflict"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value(ConflictException.USERNAME_TAKEN.getMessage()));
+    }
+
+    @Test
+    void businessRule_returns422WithMessage() throws Exception {
+        mockMvc.perform(get("/business-rule"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(content().json("{\"error\":\"Insufficient funds\"}", true));
+    }
+
+    @Test
+    void unauthorized_returns401WithMessage() throws Exception {
+        mockMvc.perform(get("/unauthorized"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(content().json("{\"error\":\"Invalid refresh token\"}", true));
+    }
+
+    @Test
+    void otherRuntimeException_returns400() throws Exception {
+        mockMvc.perform(get("/runtime"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"error\":\"Unexpected\"}", true));
+    }
+
+    @RestController
+    static class FailingController {
+
+        @GetMapping("/not-found")
+        void notFound() {
+            throw NotFoundException.CARD;
+        }
+
+        @GetMapping("/conflict")
+        void conflict() {
+            throw ConflictException.USERNAME_TAKEN;
+        }
+
+        @GetMapping("/business-rule")
+        void businessRule() {
+            throw BusinessRuleException.INSUFFICIENT_FUNDS;
+        }
+
+        @GetMapping("/unauthorized")
+        void unauthorized() {
+            throw UnauthorizedException.INVALID_REFRESH_TOKEN;
+        }
+
+        @GetMapping("/runtime")
+        void runtime() {
+            throw new RuntimeException("Unexpected");
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.security.AdaptiveConcurrencyLimiter.Priority;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Модель сервиса, который без очереди держит CAPACITY одновременных запросов, а сверх того
+// задержка растёт пропорционально числу запросов (ожидание пула соединений).
+// Время модельное: окна лимитера сдвигаются вручную, результат детерминирован.
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final int CAPACITY = 20;
+    private static final long BASE_RTT = 10_000_000L;
+    private static final long WINDOW = 100_000_000L;
+
+    private long now = System.nanoTime();
+
+    @Test
+    void lowPriority_isShedBeforeCritical() {
+        AdaptiveConcurrencyLimiter limiter = limiter(20);
+
+        int low = acquire(limiter, Priority.LOW, 100);
+        int critical = acquire(limiter, Priority.CRITICAL, 100);
+
+        assertEquals(15, low);
+        assertEquals(5, critical);
+        assertFalse(limiter.tryAcquire(Priority.CRITICAL));
+        limiter.releaseWithoutSample();
+        assertFalse(limiter.tryAcquire(Priority.LOW));
+        assertTrue(limiter.tryAcquire(Priority.CRITICAL));
+    }
+
+    @Test
+    void doubleOverload_keepsLatencyBounded_andLimitRecovers() {
+        AdaptiveConcurrencyLimiter limiter = limiter(50);
+        // Обычная нагрузка: долгая средняя задержка запоминает задержку без очереди
+        for (int i = 0; i < 50; i++) {
+            window(limiter, CAPACITY / 2);
+        }
+        assertEquals(50, limiter.getLimit(), "underloaded app must not change the limit");
+
+        // Вдвое больше, чем сервис держит без очереди: без лимита задержка выросла бы вдвое
+        long minRtt = Long.MAX_VALUE;
+        long maxRtt = 0;
+        for (int i = 0; i < 200; i++) {
+            long rtt = window(limiter, 2 * CAPACITY);
+            if (i >= 100) {
+                minRtt = Math.min(minRtt, rtt);
+                maxRtt = Math.max(maxRtt, rtt);
+            }
+        }
+        assertTrue(limiter.getLimit() < 2 * CAPACITY, "limit " + limiter.getLimit());
+        assertTrue(maxRtt < rtt(2 * CAPACITY), "rtt " + maxRtt / 1_000_000 + " ms");
+        // Лимит не уползает вслед за задержкой при затяжной перегрузке
+        assertTrue(maxRtt - minRtt <= BASE_RTT / 10, "rtt drift " + (maxRtt - minRtt) / 1_000_000 + " ms");
+
+        // Нагрузка спала: лимит не проваливается ниже того, что сервис держит без очереди
+        for (int i = 0; i < 100; i++) {
+            window(limiter, CAPACITY);
+        }
+        assertTrue(limiter.getLimit() >= CAPACITY, "limit " + limiter.getLimit());
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initial) {
+        return new AdaptiveConcurrencyLimiter(initial, 5, 200, WINDOW, 1, 600, 1.5, 0.2,
+                new double[]{1.0, 0.9, 0.75});
+    }
+
+    // Одно окно: offered запросов приходят одновременно, допущенные завершаются с задержкой модели
+    private long window(AdaptiveConcurrencyLimiter limiter, int offered) {
+        int admitted = acquire(limiter, Priority.CRITICAL, offered);
+        long rtt = rtt(admitted);
+        now += WINDOW;
+        for (int i = 0; i < admitted; i++) {
+            limiter.release(rtt, now);
+        }
+        return rtt;
+    }
+
+    private static int acquire(AdaptiveConcurrencyLimiter limiter, Priority priority, int count) {
+        int admitted = 0;
+        while (admitted < count && limiter.tryAcquire(priority)) {
+            admitted++;
+        }
+        return admitted;
+    }
+
+    private static long rtt(int concurrency) {
+        return BASE_RTT * Math.max(CAPACITY, concurrency) / CAPACITY;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.RateLimitProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Лимиты по IP и по пользователю на модельных часах: 429 с Retry-After, округлённым вверх до секунды
+class RateLimitFilterTest {
+
+    private static final String PATH = "/cards/transfer";
+
+    private long now = System.nanoTime();
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void retryAfter_isCeilingOfWaitInSeconds() throws Exception {
+        // один запрос раз в 2.5 секунды
+        RateLimitFilter filter = filter(1, 0.4);
+        assertEquals(200, call(filter, "10.0.0.1", null).getStatus());
+
+        MockHttpServletResponse rejected = call(filter, "10.0.0.1", null);
+        assertEquals(429, rejected.getStatus());
+        assertEquals("3", rejected.getHeader("Retry-After"));
+        assertEquals("{\"error\":\"Too many requests\"}", rejected.getContentAsString());
+
+        now += TimeUnit.MILLISECONDS.toNanos(600);
+        assertEquals("2", call(filter, "10.0.0.1", null).getHeader("Retry-After"));
+        now += TimeUnit.MILLISECONDS.toNanos(1900) - 1;
+        assertEquals("1", call(filter, "10.0.0.1", null).getHeader("Retry-After"));
+        now += 1;
+        assertEquals(200, call(filter, "10.0.0.1", null).getStatus());
+    }
+
+    @Test
+    void burstThenRefill() throws Exception {
+        RateLimitFilter filter = filter(3, 1);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, call(filter, "10.0.0.1", null).getStatus(), "request " + i);
+        }
+        assertEquals(429, call(filter, "10.0.0.1", null).getStatus());
+
+        now += TimeUnit.SECONDS.toNanos(1);
+        assertEquals(200, call(filter, "10.0.0.1", null).getStatus());
+        assertEquals(429, call(filter, "10.0.0.1", null).getStatus());
+    }
+
+    @Test
+    void userLimit_followsUserAcrossIps_andIpLimitCoversAllUsers() throws Exception {
+        RateLimitFilter filter = filter(2, 1);
+
+        assertEquals(200, call(filter, "10.0.0.1", "alice").getStatus());
+        assertEquals(200, call(filter, "10.0.0.1", "alice").getStatus());
+        // смена IP не помогает: лимит пользователя исчерпан
+        assertEquals(429, call(filter, "10.0.0.2", "alice").getStatus());
+        // другой пользователь упирается в лимит IP 10.0.0.1
+        assertEquals(429, call(filter, "10.0.0.1", "bob").getStatus());
+        assertEquals(200, call(filter, "10.0.0.3", "bob").getStatus());
+
+        // анонимный запрос проверяется только по IP
+        assertEquals(200, call(filter, "10.0.0.4", null).getStatus());
+        assertEquals(200, call(filter, "10.0.0.4", null).getStatus());
+        assertEquals(429, call(filter, "10.0.0.4", null).getStatus());
+    }
+
+    @Test
+    void otherPaths_andDisabledFilter_areNotLimited() throws Exception {
+        RateLimitFilter filter = filter(1, 1);
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = request("10.0.0.1");
+            request.setServletPath("/cards");
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+            assertNotNull(chain.getRequest());
+        }
+
+        RateLimitProperties disabled = properties(1, 1);
+        disabled.setEnabled(false);
+        RateLimitFilter off = new RateLimitFilter(disabled, () -> now);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, call(off, "10.0.0.1", null).getStatus());
+        }
+    }
+
+    @Test
+    void evictIdleBuckets_usesInjectedClock() throws Exception {
+        RateLimitFilter filter = filter(1, 1);
+        assertEquals(200, call(filter, "10.0.0.1", "alice").getStatus());
+        assertEquals(2, filter.size());
+
+        // бакеты пользователя и IP восстановились через секунду и простаивают ровно idle-eviction-ms
+        now += TimeUnit.MILLISECONDS.toNanos(1000 + 60_000);
+        filter.evictIdleBuckets();
+        assertEquals(2, filter.size());
+        now += 1;
+        filter.evictIdleBuckets();
+        assertEquals(0, filter.size());
+
+        // после вытеснения лимит начинается с полного бакета
+        assertEquals(200, call(filter, "10.0.0.1", "alice").getStatus());
+        assertEquals(429, call(filter, "10.0.0.1", "alice").getStatus());
+    }
+
+    private RateLimitFilter filter(int capacity, double refillPerSecond) {
+        return new RateLimitFilter(properties(capacity, refillPerSecond), () -> now);
+    }
+
+    private static RateLimitProperties properties(int capacity, double refillPerSecond) {
+        RateLimitProperties.Route route = new RateLimitProperties.Route();
+        route.setPath(PATH);
+        route.setCapacity(capacity);
+        route.setRefillPerSecond(refillPerSecond);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setIdleEvictionMs(60_000);
+        properties.setRoutes(List.of(route));
+        return properties;
+    }
+
+    private MockHttpServletResponse call(RateLimitFilter filter, String ip, String username) throws Exception {
+        if (username != null) {
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(username, null, List.of()));
+        } else {
+            SecurityContextHolder.clearContext();
+        }
+        MockHttpServletRequest request = request(ip);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String ip) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", PATH);
+        request.setServletPath(PATH);
+        request.setRemoteAddr(ip);
+        return request;
+    }
+}
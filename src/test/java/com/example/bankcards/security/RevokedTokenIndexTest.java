@@ -0,0 +1,171 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.security.RevokedTokenIndex.Snapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Фильтр Блума может ошибаться только в сторону «есть», точная таблица обязана это исправить
+class RevokedTokenIndexTest {
+
+    private static final int TABLE_MASK = 63;
+
+    private final RefreshTokenRepository repository = mock(RefreshTokenRepository.class);
+
+    @Test
+    void snapshot_containsExactlyItsIds() {
+        long[] ids = LongStream.rangeClosed(1, 10_000).map(i -> i * 7919).toArray();
+        Snapshot snapshot = Snapshot.of(ids);
+
+        for (long id : ids) {
+            assertTrue(snapshot.contains(id), "id " + id);
+        }
+        // среди миллиона отсутствующих id будут ложные срабатывания фильтра, но не ответы «есть»
+        for (long id = 1; id <= 1_000_000; id++) {
+            if (id % 7919 != 0 || id / 7919 > 10_000) {
+                assertFalse(snapshot.contains(id), "id " + id);
+            }
+        }
+        assertFalse(Snapshot.of(new long[0]).contains(1));
+    }
+
+    @Test
+    void snapshot_resolvesSlotCollisions() {
+        // Четыре id с одной ячейкой в таблице на 64 слота: три в снимке, четвёртый отсутствует
+        List<Long> colliding = new ArrayList<>();
+        int slot = (int) mix(1) & TABLE_MASK;
+        for (long id = 1; colliding.size() < 4; id++) {
+            if (((int) mix(id) & TABLE_MASK) == slot) {
+                colliding.add(id);
+            }
+        }
+        Snapshot snapshot = Snapshot.of(new long[]{colliding.get(0), colliding.get(1), colliding.get(2)});
+
+        assertTrue(snapshot.contains(colliding.get(0)));
+        assertTrue(snapshot.contains(colliding.get(1)));
+        assertTrue(snapshot.contains(colliding.get(2)));
+        assertFalse(snapshot.contains(colliding.get(3)));
+    }
+
+    @Test
+    void snapshot_probesAcrossTableEnd() {
+        // Цепочка проб из последней ячейки продолжается с начала таблицы
+        List<Long> lastSlot = new ArrayList<>();
+        for (long id = 1; lastSlot.size() < 3; id++) {
+            if (((int) mix(id) & TABLE_MASK) == TABLE_MASK) {
+                lastSlot.add(id);
+            }
+        }
+        Snapshot snapshot = Snapshot.of(new long[]{lastSlot.get(0), lastSlot.get(1)});
+
+        assertTrue(snapshot.contains(lastSlot.get(0)));
+        assertTrue(snapshot.contains(lastSlot.get(1)));
+        assertFalse(snapshot.contains(lastSlot.get(2)));
+    }
+
+    @Test
+    void add_growsIndexPastInitialCapacity() {
+        RevokedTokenIndex index = new RevokedTokenIndex(repository, 900_000);
+        for (long id = 1; id <= 5_000; id++) {
+            index.add(id);
+            index.add(id);
+        }
+
+        assertEquals(5_000, index.size());
+        for (long id = 1; id <= 5_000; id++) {
+            assertTrue(index.isRevoked(id), "id " + id);
+        }
+        assertFalse(index.isRevoked(5_001));
+    }
+
+    @Test
+    void rebuild_replacesDatabaseIds_andKeepsLocalRevocations() {
+        RevokedTokenIndex index = new RevokedTokenIndex(repository, 900_000);
+        when(repository.findRevokedIdsSince(any())).thenReturn(List.of(1L, 2L));
+        index.rebuild();
+        index.add(3);
+        assertTrue(index.isRevoked(1));
+        assertTrue(index.isRevoked(3));
+
+        // Отзыв 3 ещё не виден в БД, срок 1 истёк
+        when(repository.findRevokedIdsSince(any())).thenReturn(List.of(2L, 4L));
+        index.rebuild();
+
+        assertFalse(index.isRevoked(1));
+        assertTrue(index.isRevoked(2));
+        assertTrue(index.isRevoked(3));
+        assertTrue(index.isRevoked(4));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void lookups_duringConcurrentRebuilds_seeCompleteSnapshots() throws Exception {
+        RevokedTokenIndex index = new RevokedTokenIndex(repository, 900_000);
+        List<Long> stable = LongStream.rangeClosed(1, 1_000).boxed().toList();
+        // Каждое перестроение возвращает постоянные id и меняющийся хвост, размер снимка скачет
+        AtomicLong round = new AtomicLong();
+        when(repository.findRevokedIdsSince(any())).thenAnswer(invocation -> {
+            long r = round.incrementAndGet();
+            List<Long> ids = new ArrayList<>(stable);
+            LongStream.range(0, r % 2 == 0 ? 50_000 : 10).forEach(i -> ids.add(1_000_000 + r * 100_000 + i));
+            return ids;
+        });
+        index.rebuild();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong misses = new AtomicLong();
+        AtomicLong lookups = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (running.get()) {
+                        for (long id : stable) {
+                            if (!index.isRevoked(id)) {
+                                misses.incrementAndGet();
+                            }
+                            if (index.isRevoked(id + 10_000)) {
+                                misses.incrementAndGet();
+                            }
+                        }
+                        lookups.addAndGet(stable.size());
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+            reader.start();
+        }
+        for (int i = 0; i < 50; i++) {
+            index.rebuild();
+            index.add(500_000 + i);
+        }
+        running.set(false);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(0, misses.get());
+        assertTrue(lookups.get() > 0);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(index.isRevoked(500_000 + i));
+        }
+    }
+
+    // Тот же финализатор SplitMix64, что и в снимке: подбирает id с одной ячейкой
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Время задаётся вручную: всплеск до capacity, дальше по одному токену за интервал
+class TokenBucketRegistryTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long t0 = System.nanoTime();
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRegistry(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRegistry(5, 0));
+    }
+
+    @Test
+    void burst_allowsCapacityRequestsAtOnce() {
+        TokenBucketRegistry registry = new TokenBucketRegistry(5, 1);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, registry.tryAcquire("alice", t0), "request " + i);
+        }
+        assertEquals(SECOND, registry.tryAcquire("alice", t0));
+        // отказ не расходует токен
+        assertEquals(SECOND - 300_000_000L, registry.tryAcquire("alice", t0 + 300_000_000L));
+    }
+
+    @Test
+    void refill_isSteady_andCappedByCapacity() {
+        TokenBucketRegistry registry = new TokenBucketRegistry(3, 2);
+        for (int i = 0; i < 3; i++) {
+            registry.tryAcquire("alice", t0);
+        }
+
+        // 2 токена в секунду: каждые полсекунды ровно один запрос
+        for (int step = 1; step <= 4; step++) {
+            long now = t0 + step * SECOND / 2;
+            assertEquals(0, registry.tryAcquire("alice", now), "step " + step);
+            assertTrue(registry.tryAcquire("alice", now) > 0, "step " + step);
+        }
+
+        // после долгого простоя накоплено не больше capacity
+        long later = t0 + 60 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, registry.tryAcquire("alice", later));
+        }
+        assertEquals(SECOND / 2, registry.tryAcquire("alice", later));
+    }
+
+    @Test
+    void keys_haveSeparateBuckets() {
+        TokenBucketRegistry registry = new TokenBucketRegistry(1, 1);
+
+        assertEquals(0, registry.tryAcquire("alice", t0));
+        assertTrue(registry.tryAcquire("alice", t0) > 0);
+        assertEquals(0, registry.tryAcquire("bob", t0));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    void evictIdle_removesOnlyRecoveredIdleBuckets() {
+        TokenBucketRegistry registry = new TokenBucketRegistry(2, 1);
+        long idle = 10 * SECOND;
+        registry.tryAcquire("quiet", t0);
+        for (int i = 0; i < 2; i++) {
+            registry.tryAcquire("busy", t0 + 5 * SECOND);
+        }
+
+        // "quiet" восстановился к t0 + 1с, "busy" — к t0 + 7с
+        assertEquals(0, registry.evictIdle(t0 + SECOND + idle, idle));
+        assertEquals(1, registry.evictIdle(t0 + SECOND + idle + 1, idle));
+        assertEquals(1, registry.size());
+        assertEquals(1, registry.evictIdle(t0 + 7 * SECOND + idle + 1, idle));
+        assertEquals(0, registry.size());
+
+        // после вытеснения ключ получает новый полный бакет
+        long now = t0 + 30 * SECOND;
+        assertEquals(0, registry.tryAcquire("busy", now));
+        assertEquals(0, registry.tryAcquire("busy", now));
+        assertTrue(registry.tryAcquire("busy", now) > 0);
+    }
+}
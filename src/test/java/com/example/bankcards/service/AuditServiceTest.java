@@ -0,0 +1,209 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AuditProperties;
+import com.example.bankcards.config.AuditProperties.OverflowPolicy;
+import com.example.bankcards.entity.AuditAction;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.AuditEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Аудит пишется только после коммита, пачками; переполнение буфера разрешается настроенной политикой
+@DataJpaTest
+@Import(CardServiceTestConfig.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuditServiceTest {
+
+    // id карт событий этого теста, чтобы не смешиваться с аудитом общего AuditService
+    private static final long BASE = 900_000;
+
+    @Autowired
+    private AuditEventRepository auditEventRepository;
+    @Autowired
+    private CardService cardService;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear("audit_events");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void rolledBackTransaction_writesNoAudit() {
+        // Сервис без фонового писателя: пачки выгружаются только вызовом flush()
+        AuditService audit = auditService(properties(8, 500, OverflowPolicy.DROP_NEWEST));
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            audit.cardEvent(AuditAction.BLOCK, BASE + 1);
+            status.setRollbackOnly();
+        });
+        tx.executeWithoutResult(status -> {
+            audit.cardEvent(AuditAction.ACTIVATE, BASE + 2);
+            // до коммита событие ещё не в буфере
+            assertEquals(0, audit.flush());
+        });
+
+        assertEquals(1, audit.flush());
+        assertEquals(List.of(BASE + 2), writtenCardIds());
+    }
+
+    @Test
+    void flush_writesOneBatchPerCall() {
+        AuditService audit = auditService(properties(16, 3, OverflowPolicy.DROP_NEWEST));
+        audit.cardEvents(AuditAction.BLOCK, ids(7));
+
+        assertEquals(3, audit.flush());
+        assertEquals(3, writtenCardIds().size());
+        assertEquals(3, audit.flush());
+        assertEquals(1, audit.flush());
+        assertEquals(0, audit.flush());
+        assertEquals(ids(7), writtenCardIds());
+        assertEquals(7, meterRegistry.counter("audit.events.written").count());
+    }
+
+    @Test
+    void dropNewest_rejectsEventsOverCapacity() {
+        AuditService audit = auditService(properties(4, 500, OverflowPolicy.DROP_NEWEST));
+        audit.cardEvents(AuditAction.BLOCK, ids(6));
+
+        audit.flush();
+        assertEquals(ids(4), writtenCardIds());
+        assertEquals(2, dropped());
+    }
+
+    @Test
+    void dropOldest_evictsOldestEvents() {
+        AuditService audit = auditService(properties(4, 500, OverflowPolicy.DROP_OLDEST));
+        audit.cardEvents(AuditAction.BLOCK, ids(6));
+
+        audit.flush();
+        assertEquals(ids(6).subList(2, 6), writtenCardIds());
+        assertEquals(2, dropped());
+    }
+
+    @Test
+    void wait_dropsAfterTimeout_orEnqueuesWhenSpaceFrees() throws Exception {
+        AuditProperties properties = properties(4, 2, OverflowPolicy.WAIT);
+        properties.setOfferTimeoutMs(5);
+        AuditService audit = auditService(properties);
+        audit.cardEvents(AuditAction.BLOCK, ids(4));
+
+        // места нет и никто не читает: событие отброшено по таймауту
+        audit.cardEvent(AuditAction.BLOCK, BASE + 100);
+        assertEquals(1, dropped());
+
+        // пока публикующий поток ждёт, другой поток выгружает пачку и освобождает место
+        properties.setOfferTimeoutMs(TimeUnit.SECONDS.toMillis(10));
+        CompletableFuture<Integer> reader = CompletableFuture.supplyAsync(() -> {
+            sleep(100);
+            return audit.flush();
+        });
+        audit.cardEvent(AuditAction.BLOCK, BASE + 101);
+        assertEquals(2, reader.get(10, TimeUnit.SECONDS));
+
+        while (audit.flush() > 0) {
+            // дописываем остаток
+        }
+        assertEquals(List.of(BASE + 1, BASE + 2, BASE + 3, BASE + 4, BASE + 101), writtenCardIds());
+        assertEquals(1, dropped());
+    }
+
+    @Test
+    void stop_flushesRemainingEvents() throws Exception {
+        // Фоновый писатель спит дольше теста: остаток дописывает @PreDestroy
+        AuditProperties properties = properties(1024, 50, OverflowPolicy.DROP_NEWEST);
+        properties.setFlushIntervalMs(TimeUnit.MINUTES.toMillis(10));
+        AuditService audit = auditService(properties);
+        audit.start();
+        audit.cardEvents(AuditAction.BLOCK, ids(120));
+
+        audit.stop();
+
+        assertEquals(ids(120), writtenCardIds());
+    }
+
+    @Test
+    void deleteCard_auditsOnlyExistingCards() {
+        User owner = fixtures.createUser("audit-user");
+        Long cardId = cardService.createCard(TestFixtures.card("10.00", LocalDate.now().plusYears(2)),
+                owner.getId()).getId();
+
+        cardService.deleteCard(BASE + 500);
+        cardService.deleteCard(cardId);
+
+        // События пишутся по порядку: как только записан второй DELETE, первый тоже был бы записан
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (deleteAudits(cardId) == 0 && System.currentTimeMillis() < deadline) {
+            sleep(20);
+        }
+        assertEquals(1, deleteAudits(cardId));
+        assertEquals(0, deleteAudits(BASE + 500));
+    }
+
+    private AuditService auditService(AuditProperties properties) {
+        return new AuditService(auditEventRepository, properties, meterRegistry);
+    }
+
+    private static AuditProperties properties(int bufferSize, int batchSize, OverflowPolicy policy) {
+        AuditProperties properties = new AuditProperties();
+        properties.setBufferSize(bufferSize);
+        properties.setBatchSize(batchSize);
+        properties.setOverflowPolicy(policy);
+        return properties;
+    }
+
+    private static List<Long> ids(int count) {
+        return LongStream.rangeClosed(BASE + 1, BASE + count).boxed().toList();
+    }
+
+    private List<Long> writtenCardIds() {
+        return jdbcTemplate.queryForList(
+                "select card_id from audit_events where card_id >= ? order by id", Long.class, BASE);
+    }
+
+    private int deleteAudits(Long cardId) {
+        return jdbcTemplate.queryForObject(
+                "select count(*) from audit_events where action = 'DELETE' and card_id = ?", Integer.class, cardId);
+    }
+
+    private double dropped() {
+        return meterRegistry.counter("audit.events.dropped").count();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ArchivedCardResponse;
+import com.example.bankcards.dto.ArchivedCardsResponse;
+import com.example.bankcards.entity.CardArchiveReason;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Перенос истёкших карт в архив порциями: cards, архив, статистика и outbox меняются согласованно
+@DataJpaTest(properties = {"card-archive.expired-for-days=30", "card-archive.chunk-size=2"})
+@Import({CardServiceTestConfig.class, CardArchiveService.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardArchiveServiceTest {
+
+    @Autowired
+    private CardArchiveService cardArchiveService;
+    @Autowired
+    private CardService cardService;
+    @Autowired
+    private CardStatsService cardStatsService;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear("cards", "cards_archive", "card_outbox", "card_status_stats", "card_expiry_stats");
+    }
+
+    @Test
+    void archiveExpired_movesOnlyLongExpiredCards_inChunks() {
+        User owner = fixtures.createUser("archive-user");
+        List<Long> old = List.of(
+                createCard(owner, LocalDate.now().minusYears(2)),
+                createCard(owner, LocalDate.now().minusDays(100)),
+                createCard(owner, LocalDate.now().minusDays(31)));
+        Long recentlyExpired = createCard(owner, LocalDate.now().minusDays(5));
+        Long active = createCard(owner, LocalDate.now().plusYears(1));
+
+        assertEquals(3, cardArchiveService.archiveExpired());
+
+        assertEquals(List.of(recentlyExpired, active),
+                cardRepository.findIdsByOwnerId(owner.getId(), Pageable.unpaged()));
+        ArchivedCardsResponse archived = cardArchiveService.getArchivedCards(owner.getId(), 0, 2);
+        assertEquals(old.subList(0, 2), archived.getCards().stream().map(ArchivedCardResponse::getId).toList());
+        assertTrue(archived.isHasNext());
+        ArchivedCardResponse card = cardArchiveService.getArchivedCard(old.get(2));
+        assertEquals(CardArchiveReason.EXPIRED, card.getReason());
+        assertEquals(new BigDecimal("10.00"), card.getBalance());
+        assertTrue(card.getMaskedCardNumber().startsWith("**** **** **** "));
+
+        // счётчики описывают только горячую таблицу, в outbox — удаление для подписчиков
+        assertEquals(2, cardStatsService.getStats().getTotalCards());
+        assertEquals(2, cardStatsService.getUserStats(owner.getId()).getCardCount());
+        assertEquals(new BigDecimal("20.00"), cardStatsService.getUserStats(owner.getId()).getTotalBalance());
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "select count(*) from card_outbox where event_type = 'DELETED'", Long.class));
+
+        // повторный запуск ничего не переносит
+        assertEquals(0, cardArchiveService.archiveExpired());
+    }
+
+    @Test
+    void deletedCard_isKeptInArchive() {
+        User owner = fixtures.createUser("archive-user");
+        Long cardId = createCard(owner, LocalDate.now().plusYears(1));
+
+        cardService.deleteCard(cardId);
+
+        assertTrue(cardRepository.findById(cardId).isEmpty());
+        assertEquals(CardArchiveReason.DELETED, cardArchiveService.getArchivedCard(cardId).getReason());
+        assertThrows(NotFoundException.class, () -> cardArchiveService.getArchivedCard(cardId + 1));
+    }
+
+    private Long createCard(User owner, LocalDate expirationDate) {
+        return cardService.createCard(TestFixtures.card("10.00", expirationDate), owner.getId()).getId();
+    }
+}
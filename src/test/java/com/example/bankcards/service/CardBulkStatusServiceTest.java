@@ -0,0 +1,109 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AuditProperties;
+import com.example.bankcards.config.ShardingProperties;
+import com.example.bankcards.dto.BulkStatusRequest;
+import com.example.bankcards.dto.BulkStatusResponse;
+import com.example.bankcards.dto.JobState;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.AuditEventRepository;
+import com.example.bankcards.repository.CardBulkRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardStatsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Массовая смена статуса порциями: карты, статистика и outbox меняются согласованно
+@DataJpaTest(properties = {"card-bulk-status.async-threshold=4", "card-bulk-status.chunk-size=2"})
+@Import({CardBulkStatusService.class, CardBulkRepository.class, CardStatsService.class, CardStatsRepository.class,
+        CardOutboxService.class, AuditService.class, AuditEventRepository.class, AuditProperties.class,
+        SimpleMeterRegistry.class, ShardRouter.class, ShardingProperties.class, TestFixtures.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardBulkStatusServiceTest {
+
+    @Autowired
+    private CardBulkStatusService cardBulkStatusService;
+    @Autowired
+    private CardStatsService cardStatsService;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear("cards", "card_outbox", "card_status_stats", "card_expiry_stats");
+    }
+
+    @Test
+    void smallScope_isUpdatedSynchronously() {
+        User owner = fixtures.createUser("bulk-user");
+        User other = fixtures.createUser("bulk-user");
+        List<Long> ids = fixtures.saveCards(owner, 3);
+        fixtures.saveCards(other, 1);
+
+        BulkStatusRequest request = new BulkStatusRequest();
+        request.setStatus(CardStatus.BLOCKED);
+        request.setOwnerId(owner.getId());
+        BulkStatusResponse response = cardBulkStatusService.changeStatus(request);
+
+        assertEquals(JobState.COMPLETED, response.getState());
+        assertEquals(3, response.getMatched());
+        assertEquals(3, response.getUpdated());
+        ids.forEach(id -> assertEquals(CardStatus.BLOCKED, cardRepository.findById(id).orElseThrow().getStatus()));
+        assertEquals(3, cardStatsService.getStats().getCardsByStatus().get(CardStatus.BLOCKED));
+        assertEquals(1, cardStatsService.getStats().getCardsByStatus().get(CardStatus.ACTIVE));
+        assertEquals(3, jdbcTemplate.queryForObject("select count(*) from card_outbox", Long.class));
+
+        // повторный вызов ничего не меняет: карты уже в целевом статусе
+        assertEquals(0, cardBulkStatusService.changeStatus(request).getUpdated());
+    }
+
+    @Test
+    void largeScope_runsInBackground() throws InterruptedException {
+        User owner = fixtures.createUser("bulk-user");
+        List<Long> ids = fixtures.saveCards(owner, 5);
+
+        BulkStatusRequest request = new BulkStatusRequest();
+        request.setStatus(CardStatus.BLOCKED);
+        request.setCardIds(ids);
+        BulkStatusResponse response = cardBulkStatusService.changeStatus(request);
+        assertEquals(5, response.getMatched());
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (response.getState() != JobState.COMPLETED && response.getState() != JobState.FAILED
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            response = cardBulkStatusService.getStatus(response.getJobId());
+        }
+
+        assertEquals(JobState.COMPLETED, response.getState(), response.getError());
+        assertEquals(5, response.getUpdated());
+        assertEquals(5, cardStatsService.getStats().getCardsByStatus().get(CardStatus.BLOCKED));
+        assertEquals(0, cardStatsService.getStats().getCardsByStatus().get(CardStatus.ACTIVE));
+    }
+
+    @Test
+    void requestWithoutCriteria_isRejected() {
+        BulkStatusRequest request = new BulkStatusRequest();
+        request.setStatus(CardStatus.BLOCKED);
+        assertThrows(RuntimeException.class, () -> cardBulkStatusService.changeStatus(request));
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Relay доставляет событие, закоммиченное позже события с большим id; поток не переживает токен и сессию
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:events;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "warmup.enabled=false",
+        "card-events.poll-interval-ms=3600000"})
+class CardEventStreamTest {
+
+    private static final String PASSWORD = "secret-password";
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private CardEventStream cardEventStream;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+    private Subscription stream;
+    private User admin;
+    private String token;
+    private String refreshToken;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        admin = new User();
+        admin.setUsername("events-admin-" + System.nanoTime());
+        admin.setPassword(passwordEncoder.encode(PASSWORD));
+        admin.setRole(Role.ADMIN);
+        admin = userRepository.save(admin);
+        HttpResponse<String> login = client.send(HttpRequest.newBuilder(uri("/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + admin.getUsername() + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, login.statusCode(), login.body());
+        token = objectMapper.readTree(login.body()).get("accessToken").asText();
+        refreshToken = objectMapper.readTree(login.body()).get("refreshToken").asText();
+
+        cardEventStream.relay();
+        stream = subscribe(token, received);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.response().cancel(true);
+    }
+
+    @Test
+    void relay_deliversEventCommittedAfterLargerId() throws Exception {
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        long[] lateId = new long[1];
+        // Транзакция получила id раньше, а закоммитится позже соседней
+        Thread late = new Thread(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            lateId[0] = insertEvent();
+            inserted.countDown();
+            try {
+                commit.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        late.start();
+        assertTrue(inserted.await(5, TimeUnit.SECONDS));
+        long earlyId = insertEvent();
+        assertTrue(earlyId > lateId[0]);
+
+        cardEventStream.relay();
+        assertEquals(earlyId, received.poll(5, TimeUnit.SECONDS));
+
+        commit.countDown();
+        late.join();
+        cardEventStream.relay();
+        assertEquals(lateId[0], received.poll(5, TimeUnit.SECONDS));
+
+        cardEventStream.relay();
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS), "each event is delivered once");
+    }
+
+    @Test
+    void heartbeat_closesStream_afterLogout() throws Exception {
+        int subscribers = cardEventStream.subscriberCount();
+        HttpResponse<String> logout = client.send(HttpRequest.newBuilder(uri("/auth/logout"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"refreshToken\":\"" + refreshToken + "\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, logout.statusCode());
+
+        cardEventStream.heartbeat();
+        stream.consumed().get(5, TimeUnit.SECONDS);
+        awaitSubscriberCount(subscribers - 1);
+    }
+
+    @Test
+    void stream_endsWhenAccessTokenExpires() throws Exception {
+        // Токен той же сессии, но живущий около секунды (exp в JWT с точностью до секунды)
+        Claims claims = jwtUtil.parseClaims(token);
+        String shortLived = new JwtUtil(1000).generateToken(jwtUtil.toUserDetails(claims),
+                jwtUtil.extractSessionId(claims));
+        int subscribers = cardEventStream.subscriberCount();
+        Subscription expiring = subscribe(shortLived, new LinkedBlockingQueue<>());
+        assertEquals(subscribers + 1, cardEventStream.subscriberCount());
+
+        Thread.sleep(1100);
+        cardEventStream.heartbeat();
+        expiring.consumed().get(5, TimeUnit.SECONDS);
+        awaitSubscriberCount(subscribers);
+        // подписка с действующим токеном не затронута
+        assertFalse(stream.consumed().isDone());
+    }
+
+    // Открывает поток и ждёт, пока подписчик зарегистрируется
+    private Subscription subscribe(String accessToken, BlockingQueue<Long> ids) throws InterruptedException {
+        int subscribers = cardEventStream.subscriberCount();
+        CompletableFuture<HttpResponse<Stream<String>>> response = client.sendAsync(
+                HttpRequest.newBuilder(uri("/cards/events")).header("Authorization", "Bearer " + accessToken)
+                        .GET().build(), HttpResponse.BodyHandlers.ofLines());
+        CompletableFuture<Void> consumed = response.thenAccept(r -> r.body()
+                .filter(line -> line.startsWith("id:"))
+                .forEach(line -> ids.add(Long.parseLong(line.substring(3).trim()))));
+        awaitSubscriberCount(subscribers + 1);
+        return new Subscription(response, consumed);
+    }
+
+    private void awaitSubscriberCount(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cardEventStream.subscriberCount() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, cardEventStream.subscriberCount());
+    }
+
+    private long insertEvent() {
+        jdbcTemplate.update("insert into card_outbox (owner_id, card_id, event_type, payload, created_at) " +
+                "values (?, 1, 'STATUS_CHANGED', '{}', ?)", admin.getId(), Timestamp.from(Instant.now()));
+        return jdbcTemplate.queryForObject("select max(id) from card_outbox", Long.class);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    // consumed завершается, когда сервер закрыл поток
+    private record Subscription(CompletableFuture<HttpResponse<Stream<String>>> response,
+                                CompletableFuture<Void> consumed) {
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardLimitRequest;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.BusinessRuleException;
+import com.example.bankcards.repository.CardLimitRepository;
+import com.example.bankcards.repository.CardRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Лимиты проверяются по счётчикам в памяти, откат возвращает резерв, после рестарта счётчики читаются из БД
+@DataJpaTest
+@Import(CardServiceTestConfig.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardLimitServiceTest {
+
+    @Autowired
+    private CardService cardService;
+    @Autowired
+    private CardLimitService cardLimitService;
+    @Autowired
+    private CardLimitRepository cardLimitRepository;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private TransactionTemplate tx;
+    private Long from;
+    private Long to;
+
+    @BeforeEach
+    void setUp() {
+        // кэш второго уровня общий для контекстов тестов с разными базами
+        entityManagerFactory.getCache().evictAll();
+        tx = new TransactionTemplate(transactionManager);
+        User owner = fixtures.createUser("limits-user");
+        from = createCard(owner, "1000.00");
+        to = createCard(owner, "0.00");
+    }
+
+    @Test
+    void transfersOverLimit_areRejected() {
+        cardLimitService.setLimits(from, limits("100.00", "150.00"));
+
+        cardService.transfer(from, to, new BigDecimal("60.00"));
+        BusinessRuleException daily = assertThrows(BusinessRuleException.class,
+                () -> cardService.transfer(from, to, new BigDecimal("50.00")));
+        assertSame(BusinessRuleException.DAILY_LIMIT_EXCEEDED, daily);
+        assertEquals(0, new BigDecimal("940.00").compareTo(cardRepository.findById(from).orElseThrow().getBalance()));
+
+        cardLimitService.setLimits(from, limits("1000.00", "80.00"));
+        BusinessRuleException monthly = assertThrows(BusinessRuleException.class,
+                () -> cardService.transfer(from, to, new BigDecimal("30.00")));
+        assertSame(BusinessRuleException.MONTHLY_LIMIT_EXCEEDED, monthly);
+        assertEquals(0, new BigDecimal("60.00").compareTo(cardLimitService.getLimits(from).getDailySpent()));
+
+        cardService.transfer(from, to, new BigDecimal("20.00"));
+        assertEquals(0, new BigDecimal("80.00").compareTo(cardLimitService.getLimits(from).getMonthlySpent()));
+    }
+
+    @Test
+    void nonPositiveAmounts_areRejectedBeforeLimitCheck() {
+        cardLimitService.setLimits(from, limits("100.00", null));
+
+        for (String amount : new String[]{"0.00", "-50.00"}) {
+            BusinessRuleException error = assertThrows(BusinessRuleException.class,
+                    () -> cardService.transfer(from, to, new BigDecimal(amount)));
+            assertSame(BusinessRuleException.NON_POSITIVE_AMOUNT, error);
+        }
+        assertEquals(0, new BigDecimal("1000.00").compareTo(cardRepository.findById(from).orElseThrow().getBalance()));
+        assertEquals(0, cardRepository.findById(to).orElseThrow().getBalance().signum());
+        assertEquals(0, cardLimitService.getLimits(from).getDailySpent().signum());
+    }
+
+    @Test
+    void rollback_releasesReservation_andFlushedSpendingSurvivesRestart() {
+        cardLimitService.setLimits(from, limits("100.00", null));
+
+        tx.executeWithoutResult(status -> {
+            cardService.transfer(from, to, new BigDecimal("90.00"));
+            status.setRollbackOnly();
+        });
+        assertEquals(0, cardLimitService.getLimits(from).getDailySpent().signum());
+
+        cardService.transfer(from, to, new BigDecimal("70.00"));
+        cardLimitService.flush();
+        assertEquals(7000L, jdbcTemplate.queryForObject(
+                "select sum(amount) from card_spending where card_id = ?", Long.class, from));
+
+        // Новый экземпляр сервиса восстанавливает счётчики из card_spending
+        CardLimitService restarted = new CardLimitService(cardLimitRepository, cardRepository, shardRouter, 1000);
+        assertEquals(0, new BigDecimal("70.00").compareTo(restarted.getLimits(from).getDailySpent()));
+        tx.executeWithoutResult(status -> {
+            assertThrows(BusinessRuleException.class, () -> restarted.reserve(from, new BigDecimal("40.00")));
+            restarted.reserve(from, new BigDecimal("30.00"));
+        });
+    }
+
+    @Test
+    void release_returnsCommittedSpending() {
+        cardLimitService.setLimits(from, limits("100.00", null));
+        cardService.transfer(from, to, new BigDecimal("80.00"));
+        cardLimitService.flush();
+
+        // Отмена перевода между шардами: возврат только после коммита отмены
+        Instant spentAt = Instant.now();
+        tx.executeWithoutResult(status -> {
+            cardLimitService.release(from, new BigDecimal("80.00"), spentAt);
+            status.setRollbackOnly();
+        });
+        assertEquals(0, new BigDecimal("80.00").compareTo(cardLimitService.getLimits(from).getDailySpent()));
+
+        tx.executeWithoutResult(status -> cardLimitService.release(from, new BigDecimal("80.00"), spentAt));
+        assertEquals(0, cardLimitService.getLimits(from).getDailySpent().signum());
+        cardLimitService.flush();
+        assertEquals(0L, jdbcTemplate.queryForObject(
+                "select sum(amount) from card_spending where card_id = ?", Long.class, from));
+        cardService.transfer(from, to, new BigDecimal("90.00"));
+    }
+
+    @Test
+    void refresh_addsSpendingOfOtherInstances() {
+        cardLimitService.setLimits(from, limits("100.00", null));
+        cardService.transfer(from, to, new BigDecimal("20.00"));
+        cardLimitService.flush();
+
+        // Другой экземпляр записал в тот же час ещё 70.00
+        jdbcTemplate.update("update card_spending set amount = amount + 7000 where card_id = ?", from);
+        cardLimitService.refreshLimits();
+        assertEquals(0, new BigDecimal("90.00").compareTo(cardLimitService.getLimits(from).getDailySpent()));
+        assertThrows(BusinessRuleException.class, () -> cardService.transfer(from, to, new BigDecimal("20.00")));
+
+        // Повторная сверка не учитывает те же суммы дважды
+        cardService.transfer(from, to, new BigDecimal("5.00"));
+        cardLimitService.flush();
+        cardLimitService.refreshLimits();
+        assertEquals(0, new BigDecimal("95.00").compareTo(cardLimitService.getLimits(from).getDailySpent()));
+    }
+
+    private Long createCard(User owner, String balance) {
+        return cardService.createCard(TestFixtures.card(balance, LocalDate.now().plusYears(2)), owner.getId()).getId();
+    }
+
+    private static CardLimitRequest limits(String daily, String monthly) {
+        CardLimitRequest request = new CardLimitRequest();
+        request.setDailyLimit(daily != null ? new BigDecimal(daily) : null);
+        request.setMonthlyLimit(monthly != null ? new BigDecimal(monthly) : null);
+        return request;
+    }
+}
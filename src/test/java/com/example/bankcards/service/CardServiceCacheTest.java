@@ -0,0 +1,132 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Изменения через CardService не должны оставлять в кэше второго уровня устаревшие данные
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(CardServiceTestConfig.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardServiceCacheTest {
+
+    @Autowired
+    private CardService cardService;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private Statistics statistics;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // кэш-менеджер JCache общий для всех тестовых контекстов, а базы H2 у них разные
+        entityManagerFactory.getCache().evictAll();
+
+        owner = fixtures.createUser("cache-user");
+        statistics.clear();
+    }
+
+    @Test
+    void blockAndActivate_areVisibleThroughCache() {
+        Long id = createCard("100.00");
+        load(id);
+
+        cardService.blockCard(id);
+        assertEquals(CardStatus.BLOCKED, load(id).getStatus());
+
+        cardService.activateCard(id);
+        assertEquals(CardStatus.ACTIVE, load(id).getStatus());
+
+        cardService.requestBlock(id);
+        assertEquals(CardStatus.BLOCKED, load(id).getStatus());
+
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0, "card should be served from cache");
+    }
+
+    @Test
+    void transfer_updatesCachedBalancesAndOwnerList() {
+        Long from = createCard("100.00");
+        Long to = createCard("50.00");
+        load(from);
+        load(to);
+        cardsOfOwner();
+
+        cardService.transfer(from, to, new BigDecimal("30.00"));
+
+        assertEquals(0, new BigDecimal("70.00").compareTo(load(from).getBalance()));
+        assertEquals(0, new BigDecimal("80.00").compareTo(load(to).getBalance()));
+        for (Card card : cardsOfOwner()) {
+            BigDecimal expected = card.getId().equals(from) ? new BigDecimal("70.00") : new BigDecimal("80.00");
+            assertEquals(0, expected.compareTo(card.getBalance()));
+        }
+    }
+
+    @Test
+    void deleteCard_evictsEntityAndOwnerList() {
+        Long id = createCard("100.00");
+        load(id);
+        assertEquals(1, cardsOfOwner().size());
+
+        cardService.deleteCard(id);
+
+        assertTrue(cardRepository.findById(id).isEmpty());
+        assertTrue(cardsOfOwner().isEmpty());
+    }
+
+    @Test
+    void findByUsername_usesNaturalIdCache() {
+        userRepository.findByUsername(owner.getUsername());
+        statistics.clear();
+
+        assertTrue(userRepository.findByUsername(owner.getUsername()).isPresent());
+        assertTrue(statistics.getNaturalIdCacheHitCount() > 0);
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    private Long createCard(String balance) {
+        return cardService.createCard(TestFixtures.card(balance, LocalDate.now().plusYears(3)), owner.getId()).getId();
+    }
+
+    private Card load(Long id) {
+        return tx.execute(status -> cardRepository.findById(id).orElseThrow());
+    }
+
+    private List<Card> cardsOfOwner() {
+        return tx.execute(status -> cardRepository.findByOwner(owner));
+    }
+}
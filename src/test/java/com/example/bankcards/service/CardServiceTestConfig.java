@@ -0,0 +1,22 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AuditProperties;
+import com.example.bankcards.config.ShardingProperties;
+import com.example.bankcards.repository.AuditEventRepository;
+import com.example.bankcards.repository.CardArchiveRepository;
+import com.example.bankcards.repository.CardLimitRepository;
+import com.example.bankcards.repository.CardStatsRepository;
+import com.example.bankcards.repository.TransferIntentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+
+// CardService со всеми зависимостями и TestFixtures; новая зависимость CardService добавляется только сюда
+@TestConfiguration(proxyBeanMethods = false)
+@Import({CardService.class, AuditService.class, AuditEventRepository.class, AuditProperties.class,
+        SimpleMeterRegistry.class, CardOutboxService.class, CardStatsService.class, CardStatsRepository.class,
+        CardLimitService.class, CardLimitRepository.class, ShardRouter.class, ShardingProperties.class,
+        CrossShardTransferService.class, TransferIntentRepository.class, CardArchiveRepository.class,
+        TestFixtures.class})
+class CardServiceTestConfig {
+}
@@ -0,0 +1,122 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardStatsResponse;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Счётчики меняются вместе с картами, а сверка исправляет их расхождение с таблицей cards
+@DataJpaTest
+@Import(CardServiceTestConfig.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardStatsServiceTest {
+
+    @Autowired
+    private CardService cardService;
+    @Autowired
+    private CardStatsService cardStatsService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        fixtures.clear("cards", "card_status_stats", "card_expiry_stats", "user_card_stats");
+    }
+
+    @Test
+    void mutations_updateCounters() {
+        User alice = fixtures.createUser("stats-user");
+        User bob = fixtures.createUser("stats-user");
+        Long a1 = createCard(alice, "100.00", LocalDate.now());
+        Long b1 = createCard(bob, "50.00", LocalDate.now().plusYears(3));
+
+        cardService.blockCard(b1);
+        cardService.transfer(a1, b1, new BigDecimal("30.00"));
+
+        CardStatsResponse stats = cardStatsService.getStats();
+        assertEquals(2, stats.getTotalCards());
+        assertEquals(0, new BigDecimal("150.00").compareTo(stats.getTotalBalance()));
+        assertEquals(1, stats.getCardsByStatus().get(CardStatus.ACTIVE));
+        assertEquals(1, stats.getCardsByStatus().get(CardStatus.BLOCKED));
+        assertEquals(1, stats.getExpiringSoon());
+        assertEquals(0, new BigDecimal("70.00").compareTo(cardStatsService.getUserStats(alice.getId()).getTotalBalance()));
+        assertEquals(0, new BigDecimal("80.00").compareTo(cardStatsService.getUserStats(bob.getId()).getTotalBalance()));
+
+        cardService.deleteCard(a1);
+
+        stats = cardStatsService.getStats();
+        assertEquals(1, stats.getTotalCards());
+        assertEquals(0, stats.getCardsByStatus().get(CardStatus.ACTIVE));
+        assertEquals(0, stats.getExpiringSoon());
+        assertEquals(0, cardStatsService.getUserStats(alice.getId()).getCardCount());
+    }
+
+    @Test
+    void reconcile_fixesDrift() {
+        User alice = fixtures.createUser("stats-user");
+        createCard(alice, "100.00", LocalDate.now());
+        tx.executeWithoutResult(status -> {
+            jdbcTemplate.update("update card_status_stats set card_count = card_count + 5");
+            jdbcTemplate.update("delete from card_expiry_stats");
+            jdbcTemplate.update("update user_card_stats set total_balance = 0");
+        });
+
+        cardStatsService.reconcile();
+
+        CardStatsResponse stats = cardStatsService.getStats();
+        assertEquals(1, stats.getTotalCards());
+        assertEquals(1, stats.getExpiringSoon());
+        assertEquals(0, new BigDecimal("100.00").compareTo(cardStatsService.getUserStats(alice.getId()).getTotalBalance()));
+    }
+
+    @Test
+    void counters_seeUserCreatedInSameTransaction() {
+        tx.executeWithoutResult(status -> {
+            User carol = new User();
+            carol.setUsername("stats-user-" + System.nanoTime());
+            carol.setPassword("secret");
+            carol.setRole(Role.USER);
+            userRepository.saveAndFlush(carol);
+            createCard(carol, "40.00", LocalDate.now());
+            createCard(carol, "2.00", LocalDate.now());
+        });
+
+        CardStatsResponse stats = cardStatsService.getStats();
+        assertEquals(2, stats.getTotalCards());
+        assertEquals(2, stats.getExpiringSoon());
+        Long carolId = jdbcTemplate.queryForObject("select user_id from user_card_stats", Long.class);
+        assertEquals(0, new BigDecimal("42.00").compareTo(cardStatsService.getUserStats(carolId).getTotalBalance()));
+    }
+
+    private Long createCard(User owner, String balance, LocalDate expiration) {
+        return cardService.createCard(TestFixtures.card(balance, expiration), owner.getId()).getId();
+    }
+}
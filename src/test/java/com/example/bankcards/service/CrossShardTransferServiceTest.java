@@ -0,0 +1,58 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferIntentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static com.example.bankcards.repository.TransferIntentRepository.COMMITTED;
+import static com.example.bankcards.repository.TransferIntentRepository.PREPARED;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Сбой завершения после зачисления не должен превращаться в ошибку для клиента: деньги уже переведены
+class CrossShardTransferServiceTest {
+
+    private final CardRepository cardRepository = mock(CardRepository.class);
+    private final TransferIntentRepository transferIntentRepository = mock(TransferIntentRepository.class);
+    private final ShardRouter shardRouter = mock(ShardRouter.class);
+    private final CrossShardTransferService service = new CrossShardTransferService(cardRepository,
+            transferIntentRepository, mock(CardOutboxService.class), mock(CardStatsService.class),
+            mock(CardLimitService.class), shardRouter, 30_000);
+
+    @Test
+    void commitFailure_afterCredit_isLeftToRecovery() {
+        Card from = card(1L, "100.00");
+        Card to = card(2L, "0.00");
+        when(shardRouter.inShard(anyInt(), anyBoolean(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
+        when(cardRepository.existsById(2L)).thenReturn(true);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(from));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(to));
+        when(transferIntentRepository.insert(any(), anyString(), anyString())).thenReturn(1);
+        when(transferIntentRepository.updateState(anyString(), eq(PREPARED), eq(COMMITTED)))
+                .thenThrow(new DataAccessResourceFailureException("shard of the source card is down"));
+
+        assertDoesNotThrow(() -> service.transfer(1L, 2L, new BigDecimal("40.00")));
+        assertEquals(0, new BigDecimal("60.00").compareTo(from.getBalance()));
+        assertEquals(0, new BigDecimal("40.00").compareTo(to.getBalance()));
+    }
+
+    private static Card card(Long id, String balance) {
+        Card card = new Card();
+        card.setId(id);
+        card.setBalance(new BigDecimal(balance));
+        return card;
+    }
+}
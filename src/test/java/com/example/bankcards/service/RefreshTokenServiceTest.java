@@ -0,0 +1,106 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ShardingProperties;
+import com.example.bankcards.dto.TokenResponse;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.UnauthorizedException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.RevokedTokenIndex;
+import com.example.bankcards.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+// Ротация refresh-токена условным UPDATE: проигравший параллельный обмен отзывает сессию
+@DataJpaTest
+@Import({RefreshTokenService.class, RevokedTokenIndex.class, JwtUtil.class, ShardRouter.class,
+        ShardingProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RefreshTokenServiceTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    @Autowired
+    private RevokedTokenIndex revokedTokenIndex;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @SpyBean
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private UserDetails userDetails;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("refresh-" + System.nanoTime());
+        user.setPassword("x");
+        user.setRole(Role.USER);
+        userRepository.save(user);
+        userDetails = org.springframework.security.core.userdetails.User
+                .withUsername(user.getUsername()).password("x").roles("USER").build();
+    }
+
+    @Test
+    void refresh_rotatesToken() {
+        TokenResponse login = refreshTokenService.login(userDetails);
+
+        TokenResponse refreshed = refreshTokenService.refresh(login.getRefreshToken());
+
+        assertNotEquals(login.getRefreshToken(), refreshed.getRefreshToken());
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.refresh(login.getRefreshToken()));
+        assertNotNull(refreshTokenService.refresh(refreshed.getRefreshToken()).getAccessToken());
+    }
+
+    @Test
+    void concurrentRotation_isTreatedAsReuse_andRevokesSession() throws Exception {
+        TokenResponse login = refreshTokenService.login(userDetails);
+        long sessionId = jwtUtil.extractSessionId(jwtUtil.parseClaims(login.getAccessToken()));
+        String winnerHash = sha256("winner-token");
+
+        // Между чтением сессии и ротацией тот же токен успевает обменять другой запрос
+        doAnswer(invocation -> {
+            Optional<RefreshToken> session = refreshTokenRepository.findById(sessionId);
+            CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                    "update refresh_tokens set token_hash = ? where id = ?", winnerHash, sessionId))
+                    .join();
+            return session;
+        }).when(refreshTokenRepository).findByTokenHash(anyString());
+
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.refresh(login.getRefreshToken()));
+
+        // отзыв закоммичен вместе с отказом: токен победителя тоже больше не действует
+        assertEquals(Boolean.TRUE, jdbcTemplate.queryForObject(
+                "select revoked from refresh_tokens where id = ?", Boolean.class, sessionId));
+        assertTrue(revokedTokenIndex.isRevoked(sessionId));
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.refresh("winner-token"));
+    }
+
+    private static String sha256(String value) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+}
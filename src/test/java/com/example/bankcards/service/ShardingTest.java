@@ -0,0 +1,319 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ShardingConfig;
+import com.example.bankcards.dto.BulkStatusRequest;
+import com.example.bankcards.dto.BulkStatusResponse;
+import com.example.bankcards.dto.CardLimitRequest;
+import com.example.bankcards.dto.CardVersion;
+import com.example.bankcards.dto.JobState;
+import com.example.bankcards.dto.UserSummary;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.BusinessRuleException;
+import com.example.bankcards.repository.CardBulkRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import liquibase.integration.spring.SpringLiquibase;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Три H2-базы играют роль шардов; каждая мигрирована со своим shard.index, как в эксплуатации
+@DataJpaTest(properties = {"spring.liquibase.enabled=false", "spring.jpa.hibernate.ddl-auto=none",
+        "sharding.enabled=true", "sharding.recovery-after-ms=0",
+        "sharding.shards[0].jdbc-url=jdbc:h2:mem:shard-0" + ShardingTest.H2_MODE, "sharding.shards[0].username=sa",
+        "sharding.shards[1].jdbc-url=jdbc:h2:mem:shard-1" + ShardingTest.H2_MODE, "sharding.shards[1].username=sa",
+        "sharding.shards[2].jdbc-url=jdbc:h2:mem:shard-2" + ShardingTest.H2_MODE, "sharding.shards[2].username=sa"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CardServiceTestConfig.class, ShardingConfig.class, CardBulkStatusService.class, CardBulkRepository.class})
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, AopAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ShardingTest {
+
+    static final String H2_MODE = ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    private static final int SHARDS = 3;
+    private static final List<JdbcTemplate> shards = new ArrayList<>();
+
+    static {
+        for (int i = 0; i < SHARDS; i++) {
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:shard-" + i + H2_MODE);
+            dataSource.setUser("sa");
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(dataSource);
+            liquibase.setChangeLog("classpath:db/migration/changelog-master.yaml");
+            liquibase.setChangeLogParameters(Map.of("shard.count", String.valueOf(SHARDS),
+                    "shard.index", String.valueOf(i)));
+            liquibase.setResourceLoader(new DefaultResourceLoader());
+            try {
+                liquibase.afterPropertiesSet();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            shards.add(new JdbcTemplate(dataSource));
+        }
+    }
+
+    @Autowired
+    private CardService cardService;
+    @Autowired
+    private CrossShardTransferService crossShardTransferService;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private CardLimitService cardLimitService;
+    @Autowired
+    private CardStatsService cardStatsService;
+    @Autowired
+    private CardBulkStatusService cardBulkStatusService;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private String prefix;
+    // Пользователь на каждом шарде, индекс — номер шарда
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // кэш второго уровня общий для контекстов тестов с разными базами
+        entityManagerFactory.getCache().evictAll();
+        prefix = "shard-" + System.nanoTime() + "-";
+        for (int shard = 0; shard < SHARDS; shard++) {
+            users.add(createUser(usernameOnShard(shard), Role.USER));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void usersAndCards_livesOnOwnerShard_andAdminListingsMergeAllShards() {
+        List<Long> cardIds = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            User user = users.get(shard);
+            assertEquals(shard, user.getId() % SHARDS, "user id encodes its shard");
+            for (int i = 0; i < 2; i++) {
+                Card card = createCard(user, "100.00");
+                assertEquals(shard, card.getId() % SHARDS, "card id encodes its shard");
+                cardIds.add(card.getId());
+            }
+            for (int other = 0; other < SHARDS; other++) {
+                assertEquals(other == shard ? 2 : 0, shards.get(other).queryForObject(
+                        "select count(*) from cards where owner_id = ?", Integer.class, user.getId()));
+            }
+        }
+
+        List<Card> all = cardRepository.findAll();
+        assertEquals(sorted(cardIds), all.stream().map(Card::getId).filter(cardIds::contains).toList());
+        assertTrue(all.stream().allMatch(card -> Hibernate.isInitialized(card.getOwner())));
+        List<Long> versionIds = cardRepository.findAllVersions().stream().map(CardVersion::id).toList();
+        assertEquals(sorted(versionIds), versionIds);
+        assertTrue(versionIds.containsAll(cardIds));
+
+        // Страница объединённого поиска: порядок по id через все шарды
+        List<Long> userIds = sorted(users.stream().map(User::getId).toList());
+        Slice<UserSummary> first = userRepository.searchByUsername(prefix + "%", PageRequest.of(0, 2));
+        Slice<UserSummary> second = userRepository.searchByUsername(prefix + "%", PageRequest.of(1, 2));
+        assertEquals(userIds.subList(0, 2), first.getContent().stream().map(UserSummary::getId).toList());
+        assertTrue(first.hasNext());
+        assertEquals(userIds.subList(2, 3), second.getContent().stream().map(UserSummary::getId).toList());
+        assertFalse(second.hasNext());
+
+        // Администратор со своего шарда видит карты всех шардов
+        User admin = createUser(prefix + "admin", Role.ADMIN);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(admin.getUsername(), null));
+        List<Long> visible = cardService.getCardsForCurrentUser().stream().map(Card::getId).toList();
+        assertTrue(visible.containsAll(cardIds));
+    }
+
+    @Test
+    void searchPages_mergeShards_whenPageLiesOnOneShard() {
+        // Ещё три пользователя на шарде 2: хвост объединённого результата целиком с одного шарда
+        for (int i = 0; i < 3; i++) {
+            users.add(createUser(usernameOnShard(2), Role.USER));
+        }
+        List<Long> userIds = sorted(users.stream().map(User::getId).toList());
+
+        List<Long> merged = new ArrayList<>();
+        for (int page = 0; page < 3; page++) {
+            Slice<UserSummary> slice = userRepository.searchByUsername(prefix + "%", PageRequest.of(page, 2));
+            assertEquals(2, slice.getNumberOfElements(), "page " + page);
+            assertEquals(page < 2, slice.hasNext(), "page " + page);
+            slice.getContent().forEach(user -> merged.add(user.getId()));
+        }
+        assertEquals(userIds, merged);
+        assertTrue(userRepository.searchByUsername(prefix + "%", PageRequest.of(3, 2)).isEmpty());
+    }
+
+    @Test
+    void transfers_withinShard_andAcrossShards() {
+        Card first = createCard(users.get(0), "500.00");
+        Card second = createCard(users.get(0), "0.00");
+        Card remote = createCard(users.get(1), "0.00");
+
+        cardService.transfer(first.getId(), second.getId(), new BigDecimal("100.00"));
+        cardService.transfer(first.getId(), remote.getId(), new BigDecimal("150.00"));
+
+        assertEquals(new BigDecimal("250.00"), balance(first));
+        assertEquals(new BigDecimal("100.00"), balance(second));
+        assertEquals(new BigDecimal("150.00"), balance(remote));
+        assertEquals("COMMITTED", intentState(0, first.getId()));
+        assertEquals("APPLIED", intentState(1, first.getId()));
+
+        assertThrows(BusinessRuleException.class,
+                () -> cardService.transfer(first.getId(), remote.getId(), new BigDecimal("1000.00")));
+        assertEquals(new BigDecimal("250.00"), balance(first));
+        assertEquals(new BigDecimal("150.00"), balance(remote));
+
+        // Одна транзакция не может затронуть два шарда
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        assertThrows(IllegalStateException.class, () -> tx.execute(status -> {
+            cardRepository.findById(first.getId());
+            return cardRepository.findById(remote.getId());
+        }));
+    }
+
+    @Test
+    void recovery_completesDebitedTransfer_andRefundsWhenTargetIsGone() {
+        Card from = createCard(users.get(2), "300.00");
+        Card to = createCard(users.get(0), "0.00");
+        // Сбой после списания: на шарде отправителя есть только DEBIT/PREPARED
+        debitWithoutCredit(from, to.getId(), "120.00");
+        long missing = 3_000_000_000L + 1;
+        debitWithoutCredit(from, missing, "30.00");
+        assertEquals(new BigDecimal("150.00"), balance(from));
+
+        crossShardTransferService.recover();
+        crossShardTransferService.recover();
+
+        assertEquals(new BigDecimal("120.00"), balance(to), "credited exactly once");
+        assertEquals(new BigDecimal("180.00"), balance(from), "debit to the missing card is refunded");
+        assertEquals(List.of("ABORTED", "COMMITTED"), shards.get(2).queryForList(
+                "select state from transfer_intents where from_card_id = ? order by state", String.class, from.getId()));
+    }
+
+    @Test
+    void backgroundJobs_coverAllShards() {
+        long totalBefore = cardStatsService.getStats().getTotalCards();
+        Card local = createCard(users.get(2), "500.00");
+        Card remote = createCard(users.get(2), "0.00");
+        Card other = createCard(users.get(1), "10.00");
+        assertEquals(totalBefore + 3, cardStatsService.getStats().getTotalCards());
+
+        // Лимит и списания живут на шарде карты; обновление лимитов не теряет окна шарда 2
+        CardLimitRequest limit = new CardLimitRequest();
+        limit.setDailyLimit(new BigDecimal("100.00"));
+        cardLimitService.setLimits(local.getId(), limit);
+        cardService.transfer(local.getId(), remote.getId(), new BigDecimal("60.00"));
+        cardLimitService.flush();
+        cardLimitService.refreshLimits();
+        assertEquals(0, new BigDecimal("60.00").compareTo(cardLimitService.getLimits(local.getId()).getDailySpent()));
+        assertEquals(6000L, shards.get(2).queryForObject(
+                "select sum(amount) from card_spending where card_id = ?", Long.class, local.getId()));
+        assertThrows(BusinessRuleException.class,
+                () -> cardService.transfer(local.getId(), remote.getId(), new BigDecimal("50.00")));
+
+        // Сверка исправляет счётчики на каждом шарде
+        shards.get(2).update("update user_card_stats set total_balance = 0 where user_id = ?", users.get(2).getId());
+        cardStatsService.reconcile();
+        assertEquals(0, new BigDecimal("500.00").compareTo(
+                cardStatsService.getUserStats(users.get(2).getId()).getTotalBalance()));
+
+        BulkStatusRequest request = new BulkStatusRequest();
+        request.setStatus(CardStatus.BLOCKED);
+        request.setCardIds(List.of(local.getId(), remote.getId(), other.getId()));
+        BulkStatusResponse response = cardBulkStatusService.changeStatus(request);
+        assertEquals(JobState.COMPLETED, response.getState());
+        assertEquals(3, response.getMatched());
+        assertEquals(3, response.getUpdated());
+        assertEquals("BLOCKED", shards.get(1).queryForObject(
+                "select status from cards where id = ?", String.class, other.getId()));
+    }
+
+    private void debitWithoutCredit(Card from, long toCardId, String amount) {
+        JdbcTemplate shard = shards.get(shardRouter.shardOfId(from.getId()));
+        shard.update("update cards set balance = balance - ? where id = ?", new BigDecimal(amount), from.getId());
+        shard.update("insert into transfer_intents (id, from_card_id, to_card_id, amount, role, state, created_at) " +
+                        "values (?, ?, ?, ?, 'DEBIT', 'PREPARED', ?)", UUID.randomUUID().toString(), from.getId(),
+                toCardId, new BigDecimal(amount), Timestamp.from(Instant.now().minusSeconds(60)));
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    private String usernameOnShard(int shard) {
+        for (int i = 0; ; i++) {
+            String username = prefix + i;
+            if (shardRouter.shardOfUsername(username) == shard && users.stream()
+                    .noneMatch(user -> user.getUsername().equals(username))) {
+                return username;
+            }
+        }
+    }
+
+    private User createUser(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+
+    private Card createCard(User owner, String balance) {
+        return cardService.createCard(TestFixtures.card(balance, LocalDate.now().plusYears(3)), owner.getId());
+    }
+
+    private BigDecimal balance(Card card) {
+        return shards.get(shardRouter.shardOfId(card.getId()))
+                .queryForObject("select balance from cards where id = ?", BigDecimal.class, card.getId());
+    }
+
+    private String intentState(int shard, Long fromCardId) {
+        return shards.get(shard).queryForObject("select state from transfer_intents where from_card_id = ?",
+                String.class, fromCardId);
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Общие данные тестов сервисов: очистка таблиц, пользователи и карты
+class TestFixtures {
+
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+    private final CardStatsService cardStatsService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+
+    TestFixtures(UserRepository userRepository, CardRepository cardRepository, CardStatsService cardStatsService,
+                 JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.cardRepository = cardRepository;
+        this.cardStatsService = cardStatsService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    void clear(String... tables) {
+        tx.executeWithoutResult(status -> {
+            for (String table : tables) {
+                jdbcTemplate.update("delete from " + table);
+            }
+        });
+    }
+
+    User createUser(String prefix) {
+        return tx.execute(status -> {
+            User user = new User();
+            user.setUsername(prefix + "-" + System.nanoTime());
+            user.setPassword("secret");
+            user.setRole(Role.USER);
+            return userRepository.save(user);
+        });
+    }
+
+    // Карты в обход CardService — для тестов, которым он не нужен; статистика обновляется как при создании
+    List<Long> saveCards(User owner, int count) {
+        List<Long> ids = new ArrayList<>();
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < count; i++) {
+                Card card = card("10.00", LocalDate.now().plusYears(2));
+                card.setOwner(owner);
+                Card saved = cardRepository.save(card);
+                cardStatsService.onCreated(saved);
+                ids.add(saved.getId());
+            }
+        });
+        return ids;
+    }
+
+    // Новая активная карта с уникальным номером, ещё не сохранённая
+    static Card card(String balance, LocalDate expirationDate) {
+        Card card = new Card();
+        card.setCardNumber(String.format("4000%012d", System.nanoTime() % 1_000_000_000_000L));
+        card.setExpirationDate(expirationDate);
+        card.setBalance(new BigDecimal(balance));
+        card.setStatus(CardStatus.ACTIVE);
+        return card;
+    }
+}
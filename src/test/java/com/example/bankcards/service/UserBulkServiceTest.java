@@ -0,0 +1,116 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ShardingProperties;
+import com.example.bankcards.dto.BulkUserFormat;
+import com.example.bankcards.dto.BulkUserResponse;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.repository.UserBulkRepository;
+import com.example.bankcards.repository.UserBulkRepository.NewUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Импорт пользователей: дубликаты отсекает insert ... on conflict, ошибки разбора не прерывают импорт.
+// H2 в режиме PostgreSQL понимает on conflict do nothing.
+@DataJpaTest(properties = {"user-bulk.chunk-size=3", "user-bulk.hash-parallelism=2",
+        "spring.datasource.url=jdbc:h2:mem:user-bulk;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver", "spring.datasource.username=sa",
+        "spring.datasource.password="})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UserBulkService.class, UserBulkRepository.class, ShardRouter.class, ShardingProperties.class,
+        UserBulkServiceTest.Config.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserBulkServiceTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    @Autowired
+    private UserBulkService userBulkService;
+    @Autowired
+    private UserBulkRepository userBulkRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void csv_createsUsersAndSkipsDuplicates() throws IOException {
+        String prefix = "bulk-" + System.nanoTime() + "-";
+        jdbcTemplate.update("insert into users (username, password, role, version) values (?, 'x', 'USER', 0)",
+                prefix + "existing");
+        String csv = "username,password,role\n"
+                + prefix + "alice,secret1\n"
+                + prefix + "bob,\"pa,ss\"\"word\",ADMIN\n"
+                + prefix + "existing,secret3\n"
+                + prefix + "alice,other\n"
+                + "\n"
+                + prefix + "broken\n"
+                + prefix + "carol,secret4,SUPERUSER\n"
+                + prefix + "dave,secret5,user\n";
+
+        BulkUserResponse response = userBulkService.importUsers(stream(csv), BulkUserFormat.CSV);
+
+        assertEquals(7, response.getReceived());
+        assertEquals(3, response.getCreated());
+        assertEquals(2, response.getDuplicates());
+        assertEquals(2, response.getRejected());
+        assertEquals(2, response.getErrors().size());
+        assertTrue(response.getErrors().get(0).startsWith("line 7:"));
+
+        String bobPassword = jdbcTemplate.queryForObject("select password from users where username = ?",
+                String.class, prefix + "bob");
+        assertTrue(passwordEncoder.matches("pa,ss\"word", bobPassword));
+        assertEquals(Role.ADMIN.name(), jdbcTemplate.queryForObject("select role from users where username = ?",
+                String.class, prefix + "bob"));
+        assertTrue(passwordEncoder.matches("secret1", jdbcTemplate.queryForObject(
+                "select password from users where username = ?", String.class, prefix + "alice")));
+    }
+
+    @Test
+    void ndjson_createsUsers() throws IOException {
+        String prefix = "bulk-" + System.nanoTime() + "-";
+        String ndjson = "{\"username\":\"" + prefix + "eve\",\"password\":\"secret\"}\n"
+                + "{\"username\":\"" + prefix + "eve\",\"password\":\"again\"}\n"
+                + "not json\n";
+
+        BulkUserResponse response = userBulkService.importUsers(stream(ndjson), BulkUserFormat.NDJSON);
+
+        assertEquals(1, response.getCreated());
+        assertEquals(1, response.getDuplicates());
+        assertEquals(1, response.getRejected());
+        assertEquals(0L, jdbcTemplate.queryForObject("select version from users where username = ?",
+                Long.class, prefix + "eve"));
+        // Гонка с параллельной вставкой: строка пропускается без исключения
+        assertEquals(0, userBulkRepository.insertIgnoringDuplicates(
+                List.of(new NewUser(prefix + "eve", "hash", Role.USER)))[0]);
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
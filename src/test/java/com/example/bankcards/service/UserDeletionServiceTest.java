@@ -0,0 +1,118 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ShardingProperties;
+import com.example.bankcards.dto.JobState;
+import com.example.bankcards.dto.UserDeletionStatus;
+import com.example.bankcards.entity.AuditAction;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardStatsRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+
+// Удаление пользователя bulk-запросами: сразу для небольших пользователей и фоновой задачей для крупных
+@DataJpaTest(properties = {"user-deletion.async-threshold=3", "user-deletion.chunk-size=2"})
+@Import({UserDeletionService.class, CardStatsService.class, CardStatsRepository.class, ShardRouter.class,
+        ShardingProperties.class, CardOutboxService.class, TestFixtures.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserDeletionServiceTest {
+
+    @Autowired
+    private UserDeletionService userDeletionService;
+    @Autowired
+    private CardStatsService cardStatsService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TestFixtures fixtures;
+    @MockBean
+    private RefreshTokenService refreshTokenService;
+    @MockBean
+    private AuditService auditService;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear("cards", "card_status_stats", "card_expiry_stats", "card_outbox");
+    }
+
+    @Test
+    void smallUser_isDeletedImmediately() {
+        User user = createUserWithCards(2);
+
+        UserDeletionStatus status = userDeletionService.delete(user.getId());
+
+        assertEquals(JobState.COMPLETED, status.getState());
+        assertEquals(2, status.getDeletedCards());
+        assertTrue(userRepository.findById(user.getId()).isEmpty());
+        assertEquals(0, cardRepository.countByOwnerId(user.getId()));
+        assertEquals(0, cardStatsService.getStats().getTotalCards());
+        assertDeletedEvents(user, 2);
+        // синхронное удаление не оставляет задачи
+        assertNull(status.getJobId());
+    }
+
+    @Test
+    void largeUser_isDeletedByBackgroundJob() throws InterruptedException {
+        User user = createUserWithCards(5);
+        User other = createUserWithCards(1);
+
+        UserDeletionStatus status = userDeletionService.delete(user.getId());
+        assertNotEquals(JobState.COMPLETED, status.getState());
+        assertEquals(5, status.getTotalCards());
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (status.getState() != JobState.COMPLETED
+                && status.getState() != JobState.FAILED
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = userDeletionService.getStatus(status.getJobId());
+        }
+
+        assertEquals(JobState.COMPLETED, status.getState(), status.getError());
+        assertEquals(5, status.getDeletedCards());
+        assertTrue(userRepository.findById(user.getId()).isEmpty());
+        assertEquals(1, cardStatsService.getStats().getTotalCards());
+        assertEquals(1, cardRepository.countByOwnerId(other.getId()));
+        assertDeletedEvents(user, 5);
+    }
+
+    // Событие DELETED в outbox и запись аудита на каждую удалённую карту
+    @SuppressWarnings("unchecked")
+    private void assertDeletedEvents(User user, int cards) {
+        assertEquals(cards, jdbcTemplate.queryForObject(
+                "select count(*) from card_outbox where owner_id = ? and event_type = 'DELETED'",
+                Integer.class, user.getId()));
+        ArgumentCaptor<List<Long>> ids = ArgumentCaptor.forClass(List.class);
+        verify(auditService, atLeastOnce()).cardEvents(eq(AuditAction.DELETE), ids.capture());
+        assertEquals(cards, ids.getAllValues().stream().mapToInt(List::size).sum());
+    }
+
+    private User createUserWithCards(int cards) {
+        User user = fixtures.createUser("deletion-user");
+        fixtures.saveCards(user, cards);
+        return user;
+    }
+}
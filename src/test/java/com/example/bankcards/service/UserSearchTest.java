@@ -0,0 +1,148 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.UserSearchMode;
+import com.example.bankcards.dto.UserSearchResponse;
+import com.example.bankcards.dto.UserSummary;
+import com.example.bankcards.exception.BusinessRuleException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserBulkRepository;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+// Поиск по username: спецсимволы LIKE ищутся буквально, страницы ограничены и идут по id
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserSearchTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UserService userService;
+    private String prefix;
+
+    @BeforeEach
+    void setUp() {
+        // Поиску нужны только репозиторий и EntityManager
+        userService = new UserService(userRepository, mock(PasswordEncoder.class), mock(UserDeletionService.class),
+                mock(CardRepository.class), mock(UserBulkRepository.class), mock(UserBulkService.class),
+                entityManager, new SimpleMeterRegistry());
+        prefix = "search" + System.nanoTime() + "-";
+    }
+
+    @Test
+    void likeWildcards_areMatchedLiterally() {
+        List<Long> ids = createUsers("a%b", "a_b", "a\\b", "axb", "axxb");
+
+        assertEquals(List.of(ids.get(0)), prefixSearch("a%"));
+        assertEquals(List.of(ids.get(1)), prefixSearch("a_"));
+        assertEquals(List.of(ids.get(2)), prefixSearch("a\\"));
+        assertEquals(ids, prefixSearch("a"));
+
+        assertEquals(List.of(ids.get(1)), contains("A_B"));
+        assertEquals(List.of(ids.get(0)), contains("a%b"));
+        assertEquals(List.of(ids.get(2)), contains("a\\b"));
+        assertEquals(List.of(ids.get(3), ids.get(4)), contains("ax"));
+    }
+
+    @Test
+    void repository_treatsPatternAsPrepared() {
+        List<Long> ids = createUsers("a%b", "axb");
+
+        // Экранирование — забота сервиса: репозиторий выполняет шаблон как есть
+        assertEquals(ids, userRepository.searchByUsername(prefix + "a%", PageRequest.of(0, 10))
+                .getContent().stream().map(UserSummary::getId).toList());
+        assertEquals(List.of(ids.get(0)), userRepository.searchByUsername(prefix + "a\\%%", PageRequest.of(0, 10))
+                .getContent().stream().map(UserSummary::getId).toList());
+    }
+
+    @Test
+    void contains_requiresThreeCharacters() {
+        List<Long> ids = createUsers("xyz-end");
+
+        RuntimeException tooShort = assertThrows(RuntimeException.class,
+                () -> userService.searchUsers(" yz ", UserSearchMode.CONTAINS, 0, 10));
+        assertTrue(tooShort.getMessage().contains("at least 3"), tooShort.getMessage());
+        assertThrows(RuntimeException.class, () -> userService.searchUsers("  ", UserSearchMode.PREFIX, 0, 10));
+        // в режиме PREFIX короткий запрос допустим
+        assertFalse(userService.searchUsers("s", UserSearchMode.PREFIX, 0, 10).getUsers().isEmpty());
+
+        assertEquals(ids, contains("xyz"));
+    }
+
+    @Test
+    void pageSize_isCappedAt50_andSliceReportsNextPage() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 55; i++) {
+            names.add(String.format("u%02d", i));
+        }
+        List<Long> ids = createUsers(names.toArray(String[]::new));
+
+        UserSearchResponse first = userService.searchUsers(prefix, UserSearchMode.PREFIX, 0, 1000);
+        assertEquals(50, first.getSize());
+        assertEquals(ids.subList(0, 50), ids(first));
+        assertTrue(first.isHasNext());
+
+        UserSearchResponse second = userService.searchUsers(prefix, UserSearchMode.PREFIX, 1, 1000);
+        assertEquals(ids.subList(50, 55), ids(second));
+        assertFalse(second.isHasNext());
+
+        // страница ровно до последней строки: следующей нет
+        Slice<UserSummary> exact = userRepository.searchByUsername(prefix + "%", PageRequest.of(10, 5));
+        assertEquals(ids.subList(50, 55), exact.getContent().stream().map(UserSummary::getId).toList());
+        assertFalse(exact.hasNext());
+        assertTrue(userRepository.searchByUsername(prefix + "%", PageRequest.of(9, 5)).hasNext());
+
+        assertThrows(BusinessRuleException.class, () -> userService.searchUsers(prefix, UserSearchMode.PREFIX, 0, 0));
+        assertThrows(BusinessRuleException.class, () -> userService.searchUsers(prefix, UserSearchMode.PREFIX, -1, 10));
+    }
+
+    // Создаёт пользователей prefix + suffix по порядку, возвращает их id
+    private List<Long> createUsers(String... suffixes) {
+        List<Long> ids = new ArrayList<>();
+        for (String suffix : suffixes) {
+            jdbcTemplate.update("insert into users (username, password, role, version) values (?, 'x', 'USER', 0)",
+                    prefix + suffix);
+            ids.add(jdbcTemplate.queryForObject("select id from users where username = ?", Long.class,
+                    prefix + suffix));
+        }
+        return ids;
+    }
+
+    private List<Long> prefixSearch(String suffix) {
+        return ids(userService.searchUsers(prefix + suffix, UserSearchMode.PREFIX, 0, 10));
+    }
+
+    // Подстрока без первого символа префикса: совпадает только не с начала username
+    private List<Long> contains(String suffix) {
+        return ids(userService.searchUsers(prefix.substring(1) + suffix, UserSearchMode.CONTAINS, 0, 10));
+    }
+
+    private static List<Long> ids(UserSearchResponse response) {
+        return ids(response.getUsers());
+    }
+
+    private static List<Long> ids(List<UserSummary> users) {
+        return users.stream().map(UserSummary::getId).toList();
+    }
+}
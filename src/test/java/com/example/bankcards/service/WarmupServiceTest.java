@@ -0,0 +1,112 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Readiness переходит в ACCEPTING_TRAFFIC только после прогрева; прогрев не длится дольше max-duration-ms
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:warmup;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "warmup.enabled=true",
+        "warmup.iterations=50",
+        "warmup.query-iterations=5",
+        "warmup.password-iterations=2",
+        "warmup.threads=2"})
+class WarmupServiceTest {
+
+    // Состояние readiness, увиденное изнутри прогрева (задача password-encoder)
+    private static final List<ReadinessState> duringWarmup = new CopyOnWriteArrayList<>();
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        @Primary
+        PasswordEncoder readinessProbingPasswordEncoder(ObjectProvider<ApplicationAvailability> availability) {
+            BCryptPasswordEncoder delegate = new BCryptPasswordEncoder(4);
+            return new PasswordEncoder() {
+                @Override
+                public String encode(CharSequence rawPassword) {
+                    duringWarmup.add(availability.getObject().getReadinessState());
+                    return delegate.encode(rawPassword);
+                }
+
+                @Override
+                public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                    return delegate.matches(rawPassword, encodedPassword);
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private ApplicationAvailability availability;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void readiness_isRefusingDuringWarmup_andAcceptingAfter() {
+        assertFalse(duringWarmup.isEmpty(), "warm-up did not run before the context was ready");
+        assertEquals(ReadinessState.REFUSING_TRAFFIC, duringWarmup.get(0));
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, availability.getReadinessState());
+        assertEquals(1, meterRegistry.timer("app.warmup.duration").count());
+        // первый и прогретый вызов последней задачи
+        assertEquals(2, meterRegistry.find("app.warmup.call").tag("task", "repositories").timers().size());
+    }
+
+    @Test
+    void run_stopsAtMaxDuration() {
+        // Итераций хватило бы на часы: первая же задача упирается в потолок, остальные пропускаются
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WarmupService warmup = new WarmupService(jwtUtil, passwordEncoder, objectMapper, cardRepository,
+                userRepository, transactionManager, registry, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                Integer.MAX_VALUE, 2, 300);
+
+        long startedAt = System.nanoTime();
+        warmup.run(new DefaultApplicationArguments());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        assertTrue(elapsedMs < 5_000, "warm-up took " + elapsedMs + " ms");
+        assertEquals(1, registry.timer("app.warmup.duration").count());
+        assertNotNull(registry.find("app.warmup.call").tag("task", "card-number-cipher").timer());
+        assertNull(registry.find("app.warmup.call").tag("task", "repositories").timer());
+        assertNull(registry.find("app.warmup.call").tag("task", "password-encoder").timer());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Несколько писателей и читателей: каждый элемент читается ровно один раз, переполнение отклоняет offer
+class RingBufferTest {
+
+    @Test
+    void capacity_mustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(1));
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(6));
+        assertEquals(8, new RingBuffer<>(8).capacity());
+    }
+
+    @Test
+    void fullBuffer_rejectsOffer_andKeepsFifoOrder() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        assertNull(buffer.poll());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        // после нескольких оборотов по кольцу порядок сохраняется
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, buffer.poll());
+        }
+        assertNull(buffer.poll());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void concurrentProducersAndConsumers_loseAndDuplicateNothing() throws Exception {
+        int producers = 4;
+        int consumers = 2;
+        int perProducer = 20_000;
+        RingBuffer<Integer> buffer = new RingBuffer<>(16);
+        AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+        AtomicBoolean producing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(base + i)) {
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> readers = new ArrayList<>();
+            for (int c = 0; c < consumers; c++) {
+                readers.add(pool.submit(() -> {
+                    start.await();
+                    while (true) {
+                        Integer element = buffer.poll();
+                        if (element != null) {
+                            seen.incrementAndGet(element);
+                        } else if (!producing.get()) {
+                            // писатели закончили: дочитываем остаток
+                            while ((element = buffer.poll()) != null) {
+                                seen.incrementAndGet(element);
+                            }
+                            return null;
+                        } else {
+                            Thread.yield();
+                        }
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            producing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (int i = 0; i < seen.length(); i++) {
+            assertEquals(1, seen.get(i), "element " + i);
+        }
+        assertNull(buffer.poll());
+    }
+}
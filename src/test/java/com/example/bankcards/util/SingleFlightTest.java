@@ -0,0 +1,101 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.NotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Одновременные вызовы делят одно вычисление; после его завершения результат не переиспользуется
+class SingleFlightTest {
+
+    @Test
+    void concurrentCalls_shareOneComputation_andNextCallRecomputes() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SingleFlight<String, Integer> flight = new SingleFlight<String, Integer>().bindTo(registry, "test");
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Future<Integer> leader = pool.submit(() -> flight.execute("alice", () -> {
+                started.countDown();
+                await(release);
+                return computations.incrementAndGet();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            List<Future<Integer>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(pool.submit(() -> flight.execute("alice", computations::incrementAndGet)));
+            }
+            // Все ведомые должны встать в ожидание до завершения ведущего
+            while (flight.getCoalesced() < 7) {
+                Thread.onSpinWait();
+            }
+            assertEquals(Integer.valueOf(100), flight.execute("bob", () -> 100), "other keys are independent");
+            release.countDown();
+
+            assertEquals(1, leader.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> follower : followers) {
+                assertEquals(1, follower.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(2, flight.execute("alice", computations::incrementAndGet));
+        assertEquals(3, flight.getExecuted());
+        assertEquals(7, flight.getCoalesced());
+        assertEquals(0.7, registry.get("app.coalescing.ratio").tag("operation", "test").gauge().value(), 1e-9);
+        assertEquals(7, registry.get("app.coalescing.calls").tag("role", "follower").functionCounter().count());
+    }
+
+    @Test
+    void failure_isSharedWithFollowers_andNotRemembered() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = pool.submit(() -> flight.execute("alice", () -> {
+                started.countDown();
+                await(release);
+                throw NotFoundException.USER;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> follower = pool.submit(() -> flight.execute("alice", () -> "unexpected"));
+            while (flight.getCoalesced() < 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertSame(NotFoundException.USER, assertThrows(Exception.class,
+                    () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+            assertSame(NotFoundException.USER, assertThrows(Exception.class,
+                    () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals("ok", flight.execute("alice", () -> "ok"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}